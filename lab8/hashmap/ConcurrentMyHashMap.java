@@ -0,0 +1,432 @@
+package hashmap;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * A hash table-backed Map implementation that can be shared across threads.
+ *
+ * Each bin is a linked list of Nodes. An empty bin is filled with a single
+ * compare-and-set, and any other change to a bin is made while holding the
+ * lock of its first Node, so threads only contend when they write to the same
+ * bin. Reads take no lock at all: the table slots are read with volatile
+ * semantics, and the value and next fields of a Node are volatile.
+ *
+ * The table doubles once the map holds more than maxLoad entries per bin. The
+ * bins are moved in strides of STRIDE bins, and every thread that writes to
+ * the map while a resize is running claims strides and moves them too. A
+ * moved bin is replaced by a Forward node, which sends readers and writers on
+ * to the new table; the new table only becomes the main table once every bin
+ * has been moved.
+ *
+ * Null keys and values are not allowed, and does not resize down upon remove().
+ */
+public class ConcurrentMyHashMap<K, V> implements Map61B<K, V> {
+
+    private static final int DEFAULT_SIZE = 16;
+    private static final double DEFAULT_MAX_LOAD = 0.75;
+    /** The number of bins a thread moves at a time during a resize. */
+    private static final int STRIDE = 16;
+    /** The hash of Forward nodes. Spread hashes are never negative. */
+    private static final int MOVED = -1;
+
+    private static final VarHandle BINS = MethodHandles.arrayElementVarHandle(Node[].class);
+    private static final VarHandle RESIZE;
+
+    static {
+        try {
+            RESIZE = MethodHandles.lookup().findVarHandle(ConcurrentMyHashMap.class, "resize", Resize.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /** A key/value pair in a bin. */
+    private static class Node {
+        final int hash;
+        final Object key;
+        volatile Object value;
+        volatile Node next;
+
+        Node(int hash, Object key, Object value, Node next) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+            this.next = next;
+        }
+    }
+
+    /** The node left in a bin that has been moved to the table TO. */
+    private static class Forward extends Node {
+        final Node[] to;
+
+        Forward(Node[] to) {
+            super(MOVED, null, null, null);
+            this.to = to;
+        }
+    }
+
+    /** A resize in progress, from the table FROM to the table TO. */
+    private static class Resize {
+        final Node[] from;
+        final Node[] to;
+        final Forward forward;
+        /** The bins below this index have not been claimed yet. */
+        final AtomicInteger unclaimed;
+        /** The number of bins moved so far. */
+        final AtomicInteger moved = new AtomicInteger();
+
+        Resize(Node[] from) {
+            this.from = from;
+            this.to = new Node[from.length * 2];
+            this.forward = new Forward(to);
+            this.unclaimed = new AtomicInteger(from.length);
+        }
+    }
+
+    /* Instance Variables */
+    private volatile Node[] table;
+    /** The resize in progress, or null. */
+    private volatile Resize resize;
+    private final LongAdder count = new LongAdder();
+    private final double maxLoad;
+
+    /** Constructors */
+    public ConcurrentMyHashMap() {
+        this(DEFAULT_SIZE, DEFAULT_MAX_LOAD);
+    }
+
+    public ConcurrentMyHashMap(int initialSize) {
+        this(initialSize, DEFAULT_MAX_LOAD);
+    }
+
+    /**
+     * ConcurrentMyHashMap constructor that creates a backing array of at least
+     * initialSize bins. The load factor (# items / # buckets) should stay
+     * <= loadFactor, though threads inserting at the same time may exceed it
+     * briefly.
+     *
+     * @param initialSize initial size of backing array
+     * @param maxLoad maximum load factor
+     */
+    public ConcurrentMyHashMap(int initialSize, double maxLoad) {
+        if (maxLoad <= 0) {
+            throw new IllegalArgumentException("maxLoad must be positive");
+        }
+        this.maxLoad = maxLoad;
+        int capacity = 2;
+        while (capacity < initialSize) {
+            capacity <<= 1;
+        }
+        table = new Node[capacity];
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & 0x7FFFFFFF;
+    }
+
+    private static Node binAt(Node[] tab, int i) {
+        return (Node) BINS.getVolatile(tab, i);
+    }
+
+    private static boolean casBin(Node[] tab, int i, Node expected, Node node) {
+        return BINS.compareAndSet(tab, i, expected, node);
+    }
+
+    private static void setBin(Node[] tab, int i, Node node) {
+        BINS.setVolatile(tab, i, node);
+    }
+
+    /** Returns the node of KEY, or null if it is not in the map. Takes no lock. */
+    private Node find(Object key) {
+        if (key == null) {
+            throw new NullPointerException();
+        }
+        int h = hash(key);
+        Node[] tab = table;
+        while (true) {
+            Node e = binAt(tab, h & (tab.length - 1));
+            if (e instanceof Forward) {
+                tab = ((Forward) e).to;
+                continue;
+            }
+            for (; e != null; e = e.next) {
+                if (e.hash == h && key.equals(e.key)) {
+                    return e;
+                }
+            }
+            return null;
+        }
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        return find(key) != null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(K key) {
+        Node e = find(key);
+        return e == null ? null : (V) e.value;
+    }
+
+    @Override
+    public int size() {
+        return (int) Math.max(0, Math.min(count.sum(), Integer.MAX_VALUE));
+    }
+
+    @Override
+    public void put(K key, V value) {
+        if (key == null || value == null) {
+            throw new NullPointerException();
+        }
+        int h = hash(key);
+        Node[] tab = table;
+        while (true) {
+            int i = h & (tab.length - 1);
+            Node f = binAt(tab, i);
+            if (f == null) {
+                if (casBin(tab, i, null, new Node(h, key, value, null))) {
+                    break;
+                }
+            } else if (f instanceof Forward) {
+                help(resize);
+                tab = ((Forward) f).to;
+            } else {
+                boolean added = false;
+                synchronized (f) {
+                    /* Another writer may have changed the first node before we locked it */
+                    if (binAt(tab, i) != f) {
+                        continue;
+                    }
+                    Node e = f;
+                    while (true) {
+                        if (e.hash == h && key.equals(e.key)) {
+                            e.value = value;
+                            return;
+                        }
+                        if (e.next == null) {
+                            e.next = new Node(h, key, value, null);
+                            added = true;
+                            break;
+                        }
+                        e = e.next;
+                    }
+                }
+                if (added) {
+                    break;
+                }
+            }
+        }
+        count.increment();
+        Node[] current = table;
+        if (count.sum() > current.length * maxLoad) {
+            startResize(current);
+        }
+    }
+
+    /** Starts moving the bins of FROM to a table twice its size, unless a resize is
+     *  running, and helps move them. */
+    private void startResize(Node[] from) {
+        Resize r = resize;
+        if (r == null && table == from) {
+            Resize started = new Resize(from);
+            if (!RESIZE.compareAndSet(this, null, started)) {
+                r = resize;
+            } else if (table != from) {
+                /* A whole resize of FROM ran since it was checked; the finisher sets the table
+                 * before clearing the resize, so the table is current now */
+                resize = null;
+                return;
+            } else {
+                r = started;
+            }
+        }
+        help(r);
+    }
+
+    /** Claims and moves strides of bins of the resize R until none are left. */
+    private void help(Resize r) {
+        if (r == null) {
+            return;
+        }
+        int n = r.from.length;
+        /* A resize keeps its source as the main table until it completes, unless it is one
+         * that startResize is about to withdraw */
+        while (table == r.from) {
+            int hi = r.unclaimed.getAndAdd(-STRIDE);
+            if (hi <= 0) {
+                return;
+            }
+            int lo = Math.max(0, hi - STRIDE);
+            for (int i = lo; i < hi; i++) {
+                move(r, i);
+            }
+            if (r.moved.addAndGet(hi - lo) == n) {
+                /* This thread moved the last bins, so the new table is complete */
+                table = r.to;
+                resize = null;
+            }
+        }
+    }
+
+    /** Splits bin I of the old table of R between bins I and I + n of the new one. */
+    private static void move(Resize r, int i) {
+        int n = r.from.length;
+        while (true) {
+            Node f = binAt(r.from, i);
+            if (f == null) {
+                if (casBin(r.from, i, null, r.forward)) {
+                    return;
+                }
+                continue;
+            }
+            synchronized (f) {
+                if (binAt(r.from, i) != f) {
+                    continue;
+                }
+                /* The nodes are copied, as readers may still be walking the old bin */
+                Node lo = null;
+                Node hi = null;
+                for (Node e = f; e != null; e = e.next) {
+                    if ((e.hash & n) == 0) {
+                        lo = new Node(e.hash, e.key, e.value, lo);
+                    } else {
+                        hi = new Node(e.hash, e.key, e.value, hi);
+                    }
+                }
+                setBin(r.to, i, lo);
+                setBin(r.to, i + n, hi);
+                setBin(r.from, i, r.forward);
+                return;
+            }
+        }
+    }
+
+    @Override
+    public V remove(K key) {
+        return remove(key, null, false);
+    }
+
+    @Override
+    public V remove(K key, V value) {
+        if (value == null) {
+            return null;
+        }
+        return remove(key, value, true);
+    }
+
+    /** Removes the mapping of KEY, if it maps to VALUE or MATCH is false. */
+    @SuppressWarnings("unchecked")
+    private V remove(Object key, Object value, boolean match) {
+        if (key == null) {
+            throw new NullPointerException();
+        }
+        int h = hash(key);
+        Node[] tab = table;
+        while (true) {
+            int i = h & (tab.length - 1);
+            Node f = binAt(tab, i);
+            if (f == null) {
+                return null;
+            } else if (f instanceof Forward) {
+                help(resize);
+                tab = ((Forward) f).to;
+                continue;
+            }
+            synchronized (f) {
+                if (binAt(tab, i) != f) {
+                    continue;
+                }
+                for (Node e = f, pred = null; e != null; pred = e, e = e.next) {
+                    if (e.hash == h && key.equals(e.key)) {
+                        Object old = e.value;
+                        if (match && !value.equals(old)) {
+                            return null;
+                        }
+                        if (pred == null) {
+                            setBin(tab, i, e.next);
+                        } else {
+                            pred.next = e.next;
+                        }
+                        count.decrement();
+                        return (V) old;
+                    }
+                }
+                return null;
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        Node[] tab = table;
+        for (int i = 0; i < tab.length; i++) {
+            Node f = binAt(tab, i);
+            if (f == null) {
+                continue;
+            } else if (f instanceof Forward) {
+                /* Finish the resize, then clear the new table from the start */
+                help(resize);
+                tab = ((Forward) f).to;
+                i = -1;
+                continue;
+            }
+            synchronized (f) {
+                if (binAt(tab, i) != f) {
+                    i -= 1;
+                    continue;
+                }
+                int removed = 0;
+                for (Node e = f; e != null; e = e.next) {
+                    removed += 1;
+                }
+                setBin(tab, i, null);
+                count.add(-removed);
+            }
+        }
+    }
+
+    /** Calls ACTION on every node of the bins of TAB, following moved bins. */
+    private static void forEachNode(Node[] tab, Consumer<Node> action) {
+        for (int i = 0; i < tab.length; i++) {
+            forEachNode(tab, i, action);
+        }
+    }
+
+    private static void forEachNode(Node[] tab, int i, Consumer<Node> action) {
+        Node e = binAt(tab, i);
+        if (e instanceof Forward) {
+            Node[] to = ((Forward) e).to;
+            forEachNode(to, i, action);
+            forEachNode(to, i + tab.length, action);
+            return;
+        }
+        for (; e != null; e = e.next) {
+            action.accept(e);
+        }
+    }
+
+    /** Returns a snapshot of the keys, which reflects every change that completed
+     *  before the call and may reflect those made during it. */
+    @Override
+    @SuppressWarnings("unchecked")
+    public Set<K> keySet() {
+        Set<K> keys = new HashSet<>();
+        forEachNode(table, e -> keys.add((K) e.key));
+        return keys;
+    }
+
+    @Override
+    public Iterator<K> iterator() {
+        return keySet().iterator();
+    }
+}
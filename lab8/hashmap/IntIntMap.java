@@ -0,0 +1,264 @@
+package hashmap;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A hash table from int keys to int values that never boxes. Keys and values
+ * are stored in two parallel int arrays with linear probing, and removal shifts
+ * the following entries of the run back instead of leaving a tombstone.
+ *
+ * Slots with key 0 are empty, so the mapping of key 0 itself is kept apart.
+ * Entries are visited with a Cursor instead of a boxed keySet().
+ *
+ * Does not resize down upon remove().
+ */
+public class IntIntMap {
+
+    private static final int DEFAULT_SIZE = 16;
+    private static final double DEFAULT_MAX_LOAD = 0.75;
+
+    /* Instance Variables */
+    private int[] keys;
+    private int[] values;
+    private int mask;
+    /** The number of entries in the arrays, which excludes key 0. */
+    private int used;
+    private int threshold;
+    private boolean hasZeroKey;
+    private int zeroValue;
+    private final double maxLoad;
+
+    /** Constructors */
+    public IntIntMap() {
+        this(DEFAULT_SIZE, DEFAULT_MAX_LOAD);
+    }
+
+    public IntIntMap(int initialSize) {
+        this(initialSize, DEFAULT_MAX_LOAD);
+    }
+
+    /**
+     * IntIntMap constructor that creates backing arrays of at least initialSize
+     * slots. The load factor (# items / # slots) should always be <= loadFactor,
+     * which must be below 1.
+     *
+     * @param initialSize initial size of backing arrays
+     * @param maxLoad maximum load factor
+     */
+    public IntIntMap(int initialSize, double maxLoad) {
+        if (maxLoad <= 0 || maxLoad >= 1) {
+            throw new IllegalArgumentException("maxLoad must be between 0 and 1");
+        }
+        this.maxLoad = maxLoad;
+        createTable(tableSizeFor(initialSize));
+    }
+
+    private static int tableSizeFor(int n) {
+        int capacity = 2;
+        while (capacity < n) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private void createTable(int tableSize) {
+        keys = new int[tableSize];
+        values = new int[tableSize];
+        mask = tableSize - 1;
+        threshold = Math.min((int) (tableSize * maxLoad), tableSize - 1);
+    }
+
+    /** Returns the home slot of KEY. */
+    private int home(int key) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /** Returns the slot of the non-zero KEY, or -1 if it is not in the map. */
+    private int find(int key) {
+        for (int slot = home(key); keys[slot] != 0; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    /** Removes all of the mappings from this map. */
+    public void clear() {
+        Arrays.fill(keys, 0);
+        used = 0;
+        hasZeroKey = false;
+    }
+
+    /** Returns the number of key-value mappings in this map. */
+    public int size() {
+        return used + (hasZeroKey ? 1 : 0);
+    }
+
+    /** Returns true if this map contains a mapping for KEY. */
+    public boolean containsKey(int key) {
+        return key == 0 ? hasZeroKey : find(key) >= 0;
+    }
+
+    /** Returns the value KEY is mapped to, or DEFAULTVALUE if it has none. */
+    public int get(int key, int defaultValue) {
+        if (key == 0) {
+            return hasZeroKey ? zeroValue : defaultValue;
+        }
+        int slot = find(key);
+        return slot < 0 ? defaultValue : values[slot];
+    }
+
+    /** Maps KEY to VALUE, replacing its old value. */
+    public void put(int key, int value) {
+        if (key == 0) {
+            hasZeroKey = true;
+            zeroValue = value;
+            return;
+        }
+        int slot = home(key);
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++used > threshold) {
+            resize(keys.length * 2);
+        }
+    }
+
+    /** Adds DELTA to the value of KEY, which is 0 if it has none, and returns the sum. */
+    public int addTo(int key, int delta) {
+        int slot = key == 0 ? -1 : find(key);
+        if (slot >= 0) {
+            values[slot] += delta;
+            return values[slot];
+        }
+        int value = get(key, 0) + delta;
+        put(key, value);
+        return value;
+    }
+
+    /** Removes the mapping of KEY, returning its value, or DEFAULTVALUE if it has none. */
+    public int remove(int key, int defaultValue) {
+        if (key == 0) {
+            if (!hasZeroKey) {
+                return defaultValue;
+            }
+            hasZeroKey = false;
+            return zeroValue;
+        }
+        int slot = find(key);
+        if (slot < 0) {
+            return defaultValue;
+        }
+        int old = values[slot];
+        removeSlot(slot);
+        return old;
+    }
+
+    /**
+     * Empties SLOT, moving back every following entry of the run that can no
+     * longer be reached from its home slot.
+     */
+    private void removeSlot(int slot) {
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            int key = keys[next];
+            if (key == 0) {
+                break;
+            }
+            /* The entry may fill the hole unless its home lies cyclically in (slot, next] */
+            int home = home(key);
+            if (((next - home) & mask) >= ((next - slot) & mask)) {
+                keys[slot] = key;
+                values[slot] = values[next];
+                slot = next;
+            }
+        }
+        keys[slot] = 0;
+        used -= 1;
+    }
+
+    private void resize(int tableSize) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        createTable(tableSize);
+        for (int i = 0; i < oldKeys.length; i++) {
+            int key = oldKeys[i];
+            if (key != 0) {
+                int slot = home(key);
+                while (keys[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    /** Returns a cursor positioned before the first entry. */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Visits the entries of the map without boxing:
+     *
+     *   for (IntIntMap.Cursor c = map.cursor(); c.advance(); ) {
+     *       use(c.key(), c.value());
+     *   }
+     *
+     * The map must not be changed while a cursor is in use, except through
+     * setValue().
+     */
+    public class Cursor {
+        /** The current slot, or keys.length for key 0. */
+        private int slot = -1;
+
+        private Cursor() {
+        }
+
+        /** Moves to the next entry, returning false if there is none. */
+        public boolean advance() {
+            while (++slot < keys.length) {
+                if (keys[slot] != 0) {
+                    return true;
+                }
+            }
+            return slot == keys.length && hasZeroKey;
+        }
+
+        private void check() {
+            if (slot < 0 || slot > keys.length || (slot == keys.length && !hasZeroKey)) {
+                throw new NoSuchElementException();
+            }
+        }
+
+        public int key() {
+            check();
+            return slot == keys.length ? 0 : keys[slot];
+        }
+
+        public int value() {
+            check();
+            return slot == keys.length ? zeroValue : values[slot];
+        }
+
+        public void setValue(int value) {
+            check();
+            if (slot == keys.length) {
+                zeroValue = value;
+            } else {
+                values[slot] = value;
+            }
+        }
+    }
+}
@@ -1,13 +1,27 @@
 package hashmap;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
 
 /**
  *  A hash table-backed Map implementation. Provides amortized constant time
  *  access to elements via get(), remove(), and put() in the best case.
  *
+ *  The table doubles once the load factor would exceed maxLoad. By default every
+ *  node is rehashed into the new table at once, which makes the put that crosses
+ *  maxLoad take time proportional to the size of the map. With incremental
+ *  resizing, as in the progressive rehash of Redis, both tables are kept and
+ *  every put and remove moves migrateStep buckets of the old table to the
+ *  new one, so no single operation pays for the whole rehash. Until a bucket is
+ *  moved, its keys are looked up, added and removed in the old table.
+ *
  *  Assumes null keys will never be inserted, and does not resize down upon remove().
- *  @author YOUR NAME HERE
+ *  @author Ethan
  */
 public class MyHashMap<K, V> implements Map61B<K, V> {
 
@@ -27,12 +41,31 @@ public class MyHashMap<K, V> implements Map61B<K, V> {
 
     /* Instance Variables */
     private Collection<Node>[] buckets;
-    // You should probably define some more!
+    /** The table being emptied into buckets by an incremental resize, or null. */
+    private Collection<Node>[] oldBuckets;
+    /** The number of leading buckets of oldBuckets already moved. */
+    private int migrated;
+    private int size;
+    private final double maxLoad;
+    private final boolean incremental;
+    /** The number of buckets of a new or cleared map. */
+    private final int initialSize;
+    /** The buckets moved per put or remove during an incremental resize. Since the
+     *  table doubles, ceil(1 / maxLoad) per put finishes each resize before the next
+     *  one is due. */
+    private final int migrateStep;
+
+    private static final int DEFAULT_SIZE = 16;
+    private static final double DEFAULT_MAX_LOAD = 0.75;
 
     /** Constructors */
-    public MyHashMap() { }
+    public MyHashMap() {
+        this(DEFAULT_SIZE, DEFAULT_MAX_LOAD);
+    }
 
-    public MyHashMap(int initialSize) { }
+    public MyHashMap(int initialSize) {
+        this(initialSize, DEFAULT_MAX_LOAD);
+    }
 
     /**
      * MyHashMap constructor that creates a backing array of initialSize.
@@ -41,13 +74,35 @@ public class MyHashMap<K, V> implements Map61B<K, V> {
      * @param initialSize initial size of backing array
      * @param maxLoad maximum load factor
      */
-    public MyHashMap(int initialSize, double maxLoad) { }
+    public MyHashMap(int initialSize, double maxLoad) {
+        this(initialSize, maxLoad, false);
+    }
+
+    /**
+     * MyHashMap constructor that creates a backing array of initialSize, and
+     * spreads the rehashing of each resize over later operations if
+     * incremental is true.
+     *
+     * @param initialSize initial size of backing array
+     * @param maxLoad maximum load factor
+     * @param incremental whether to resize incrementally
+     */
+    public MyHashMap(int initialSize, double maxLoad, boolean incremental) {
+        if (maxLoad <= 0) {
+            throw new IllegalArgumentException("maxLoad must be positive");
+        }
+        this.maxLoad = maxLoad;
+        this.incremental = incremental;
+        this.initialSize = Math.max(1, initialSize);
+        migrateStep = (int) Math.max(1, Math.ceil(1 / maxLoad));
+        buckets = createTable(this.initialSize);
+    }
 
     /**
      * Returns a new node to be placed in a hash table bucket
      */
     private Node createNode(K key, V value) {
-        return null;
+        return new Node(key, value);
     }
 
     /**
@@ -69,7 +124,7 @@ public class MyHashMap<K, V> implements Map61B<K, V> {
      * OWN BUCKET DATA STRUCTURES WITH THE NEW OPERATOR!
      */
     protected Collection<Node> createBucket() {
-        return null;
+        return new LinkedList<>();
     }
 
     /**
@@ -81,11 +136,168 @@ public class MyHashMap<K, V> implements Map61B<K, V> {
      *
      * @param tableSize the size of the table to create
      */
+    @SuppressWarnings({"unchecked", "rawtypes"})
     private Collection<Node>[] createTable(int tableSize) {
+        /* Buckets are created when first added to, so that a resize does not pay for
+         * creating all of them up front */
+        return new Collection[tableSize];
+    }
+
+    /** Returns the bucket of KEY in TABLE, creating it if CREATE is true, or null. */
+    private Collection<Node> bucket(Collection<Node>[] table, K key, boolean create) {
+        int index = Math.floorMod(key.hashCode(), table.length);
+        if (table[index] == null && create) {
+            table[index] = createBucket();
+        }
+        return table[index];
+    }
+
+    /** Returns the bucket that holds KEY, or would hold it if it were added, creating it
+     *  if CREATE is true, or null. */
+    private Collection<Node> bucketOf(K key, boolean create) {
+        if (oldBuckets != null && Math.floorMod(key.hashCode(), oldBuckets.length) >= migrated) {
+            return bucket(oldBuckets, key, create);
+        }
+        return bucket(buckets, key, create);
+    }
+
+    /** Returns the node of KEY in BUCKET, or null if there is none. */
+    private Node find(Collection<Node> bucket, K key) {
+        if (bucket == null) {
+            return null;
+        }
+        for (Node node : bucket) {
+            if (node.key.equals(key)) {
+                return node;
+            }
+        }
         return null;
     }
 
-    // TODO: Implement the methods of the Map61B Interface below
-    // Your code won't compile until you do so!
+    @Override
+    public void clear() {
+        buckets = createTable(initialSize);
+        oldBuckets = null;
+        size = 0;
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        return find(bucketOf(key, false), key) != null;
+    }
+
+    @Override
+    public V get(K key) {
+        Node node = find(bucketOf(key, false), key);
+        return node == null ? null : node.value;
+    }
 
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void put(K key, V value) {
+        migrate(migrateStep);
+        Collection<Node> bucket = bucketOf(key, true);
+        Node node = find(bucket, key);
+        if (node != null) {
+            node.value = value;
+            return;
+        }
+        bucket.add(createNode(key, value));
+        size += 1;
+        if ((double) size / buckets.length > maxLoad) {
+            resize(buckets.length * 2);
+        }
+    }
+
+    /** Replaces buckets by a table of TABLESIZE buckets, moving the nodes at once or,
+     *  for an incremental resize, leaving them to be moved by later operations. */
+    private void resize(int tableSize) {
+        /* A resize still in progress is finished first, so there are at most two tables */
+        migrate(Integer.MAX_VALUE);
+        oldBuckets = buckets;
+        migrated = 0;
+        buckets = createTable(tableSize);
+        if (!incremental) {
+            migrate(Integer.MAX_VALUE);
+        }
+    }
+
+    /** Moves up to COUNT buckets of oldBuckets into buckets. */
+    private void migrate(int count) {
+        if (oldBuckets == null) {
+            return;
+        }
+        int end = (int) Math.min(oldBuckets.length, (long) migrated + count);
+        for (; migrated < end; migrated++) {
+            if (oldBuckets[migrated] != null) {
+                for (Node node : oldBuckets[migrated]) {
+                    bucket(buckets, node.key, true).add(node);
+                }
+                oldBuckets[migrated] = null;
+            }
+        }
+        if (migrated == oldBuckets.length) {
+            oldBuckets = null;
+        }
+    }
+
+    @Override
+    public Set<K> keySet() {
+        Set<K> keys = new HashSet<>();
+        for (K key : this) {
+            keys.add(key);
+        }
+        return keys;
+    }
+
+    @Override
+    public V remove(K key) {
+        migrate(migrateStep);
+        Collection<Node> bucket = bucketOf(key, false);
+        Node node = find(bucket, key);
+        if (node == null) {
+            return null;
+        }
+        bucket.remove(node);
+        size -= 1;
+        return node.value;
+    }
+
+    @Override
+    public V remove(K key, V value) {
+        Node node = find(bucketOf(key, false), key);
+        if (node == null || !node.value.equals(value)) {
+            return null;
+        }
+        return remove(key);
+    }
+
+    /** Returns an iterator over the keys of the buckets not yet moved by a resize,
+     *  then those of the current table. */
+    @Override
+    public Iterator<K> iterator() {
+        List<K> keys = new ArrayList<>(size);
+        if (oldBuckets != null) {
+            for (int i = migrated; i < oldBuckets.length; i++) {
+                addKeys(oldBuckets[i], keys);
+            }
+        }
+        for (Collection<Node> bucket : buckets) {
+            addKeys(bucket, keys);
+        }
+        return keys.iterator();
+    }
+
+    /** Adds the keys of BUCKET, which may not have been created, to KEYS. */
+    private void addKeys(Collection<Node> bucket, List<K> keys) {
+        if (bucket != null) {
+            for (Node node : bucket) {
+                keys.add(node.key);
+            }
+        }
+    }
 }
@@ -0,0 +1,292 @@
+package hashmap;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Hash Table with open addressing instead of buckets. Keys, values and hashes are
+ * stored in three parallel flat arrays, so an entry costs no Node and no bucket,
+ * and probing walks contiguous memory.
+ *
+ * Collisions are resolved by linear probing with Robin Hood hashing: an entry that
+ * is further from its home slot than the entry occupying a slot takes that slot,
+ * and the displaced entry continues probing. This keeps probe lengths short and
+ * even, and lets a lookup stop at the first entry closer to home than itself.
+ * Removal shifts the following entries of the run back by one instead of leaving
+ * a tombstone.
+ *
+ * The spread hash of every entry is cached, with its top bit set so that 0 marks
+ * an empty slot. Lookups compare cached hashes before calling equals(), and
+ * resizing never calls hashCode() again.
+ *
+ * Assumes null keys will never be inserted, and does not resize down upon remove().
+ */
+public class MyHashMapRobinHood<K, V> implements Map61B<K, V> {
+
+    private static final int DEFAULT_SIZE = 16;
+    private static final double DEFAULT_MAX_LOAD = 0.75;
+    /** The bit set in every cached hash, so that no cached hash is 0. */
+    private static final int OCCUPIED = 0x80000000;
+
+    /* Instance Variables */
+    private Object[] keys;
+    private Object[] values;
+    private int[] hashes;
+    private int mask;
+    private int size;
+    private int threshold;
+    private final double maxLoad;
+
+    /** Constructors */
+    public MyHashMapRobinHood() {
+        this(DEFAULT_SIZE, DEFAULT_MAX_LOAD);
+    }
+
+    public MyHashMapRobinHood(int initialSize) {
+        this(initialSize, DEFAULT_MAX_LOAD);
+    }
+
+    /**
+     * MyHashMapRobinHood constructor that creates backing arrays of at least
+     * initialSize slots. The load factor (# items / # slots) should always be
+     * <= loadFactor, which must be below 1.
+     *
+     * @param initialSize initial size of backing arrays
+     * @param maxLoad maximum load factor
+     */
+    public MyHashMapRobinHood(int initialSize, double maxLoad) {
+        if (maxLoad <= 0 || maxLoad >= 1) {
+            throw new IllegalArgumentException("maxLoad must be between 0 and 1");
+        }
+        this.maxLoad = maxLoad;
+        createTable(tableSizeFor(initialSize));
+    }
+
+    /** Returns the power of two number of slots that holds N entries. */
+    private static int tableSizeFor(int n) {
+        int capacity = 2;
+        while (capacity < n) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private void createTable(int tableSize) {
+        keys = new Object[tableSize];
+        values = new Object[tableSize];
+        hashes = new int[tableSize];
+        mask = tableSize - 1;
+        threshold = Math.min((int) (tableSize * maxLoad), tableSize - 1);
+    }
+
+    /** Returns the cached form of the hash of KEY. */
+    private static int hash(Object key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return (h ^ (h >>> 16)) | OCCUPIED;
+    }
+
+    /** Returns how far the entry with cached hash H in SLOT is from its home slot. */
+    private int distance(int h, int slot) {
+        return (slot - h) & mask;
+    }
+
+    /** Returns the slot of KEY, or -1 if it is not in the map. */
+    private int find(Object key) {
+        int h = hash(key);
+        int slot = h & mask;
+        for (int dist = 0; ; dist++) {
+            int other = hashes[slot];
+            if (other == 0 || distance(other, slot) < dist) {
+                return -1;
+            }
+            if (other == h && key.equals(keys[slot])) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    @Override
+    public void clear() {
+        createTable(DEFAULT_SIZE);
+        size = 0;
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        return find(key) >= 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(K key) {
+        int slot = find(key);
+        return slot < 0 ? null : (V) values[slot];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void put(K key, V value) {
+        int h = hash(key);
+        int slot = h & mask;
+        Object k = key;
+        Object v = value;
+        boolean displaced = false;
+        for (int dist = 0; ; dist++) {
+            int other = hashes[slot];
+            if (other == 0) {
+                hashes[slot] = h;
+                keys[slot] = k;
+                values[slot] = v;
+                if (++size > threshold) {
+                    resize(keys.length * 2);
+                }
+                return;
+            }
+            /* Once an entry has been displaced, the key is known to be new */
+            if (!displaced && other == h && k.equals(keys[slot])) {
+                values[slot] = v;
+                return;
+            }
+            int otherDist = distance(other, slot);
+            if (otherDist < dist) {
+                hashes[slot] = h;
+                h = other;
+                Object t = keys[slot];
+                keys[slot] = k;
+                k = t;
+                t = values[slot];
+                values[slot] = v;
+                v = t;
+                dist = otherDist;
+                displaced = true;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /** Moves every entry into new arrays of TABLESIZE slots. */
+    private void resize(int tableSize) {
+        Object[] oldKeys = keys;
+        Object[] oldValues = values;
+        int[] oldHashes = hashes;
+        createTable(tableSize);
+        for (int i = 0; i < oldHashes.length; i++) {
+            if (oldHashes[i] != 0) {
+                insertNew(oldHashes[i], oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    /** Inserts an entry known to be absent, without checking the load factor. */
+    private void insertNew(int h, Object k, Object v) {
+        int slot = h & mask;
+        for (int dist = 0; ; dist++) {
+            int other = hashes[slot];
+            if (other == 0) {
+                hashes[slot] = h;
+                keys[slot] = k;
+                values[slot] = v;
+                return;
+            }
+            int otherDist = distance(other, slot);
+            if (otherDist < dist) {
+                hashes[slot] = h;
+                h = other;
+                Object t = keys[slot];
+                keys[slot] = k;
+                k = t;
+                t = values[slot];
+                values[slot] = v;
+                v = t;
+                dist = otherDist;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    @Override
+    public Set<K> keySet() {
+        Set<K> result = new HashSet<>();
+        for (K key : this) {
+            result.add(key);
+        }
+        return result;
+    }
+
+    @Override
+    public V remove(K key) {
+        int slot = find(key);
+        if (slot < 0) {
+            return null;
+        }
+        return removeSlot(slot);
+    }
+
+    @Override
+    public V remove(K key, V value) {
+        int slot = find(key);
+        if (slot < 0 || !values[slot].equals(value)) {
+            return null;
+        }
+        return removeSlot(slot);
+    }
+
+    /**
+     * Removes the entry in SLOT by shifting back the entries after it, up to the
+     * first empty slot or entry already in its home slot.
+     */
+    @SuppressWarnings("unchecked")
+    private V removeSlot(int slot) {
+        V old = (V) values[slot];
+        int next = (slot + 1) & mask;
+        while (hashes[next] != 0 && distance(hashes[next], next) > 0) {
+            hashes[slot] = hashes[next];
+            keys[slot] = keys[next];
+            values[slot] = values[next];
+            slot = next;
+            next = (next + 1) & mask;
+        }
+        hashes[slot] = 0;
+        keys[slot] = null;
+        values[slot] = null;
+        size -= 1;
+        return old;
+    }
+
+    @Override
+    public Iterator<K> iterator() {
+        return new Iterator<K>() {
+            private int slot = advance(0);
+
+            private int advance(int from) {
+                while (from < hashes.length && hashes[from] == 0) {
+                    from++;
+                }
+                return from;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return slot < hashes.length;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public K next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                K key = (K) keys[slot];
+                slot = advance(slot + 1);
+                return key;
+            }
+        };
+    }
+}
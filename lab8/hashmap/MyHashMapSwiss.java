@@ -0,0 +1,308 @@
+package hashmap;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Hash Table with open addressing and a control byte per slot, in the manner of
+ * the Swiss tables of Abseil. Keys and values are stored in two parallel flat
+ * arrays, and a third array holds one control byte per slot: EMPTY, DELETED, or
+ * the low 7 bits of the hash of the key in the slot.
+ *
+ * A lookup reads the control bytes of a group of 8 slots as one long and finds
+ * the slots whose byte matches the key's 7 bits with a few word operations, so
+ * equals() is called almost only on the key itself. The first group containing
+ * an EMPTY byte ends the search. Groups are probed quadratically, and the first
+ * GROUP_WIDTH control bytes are mirrored past the end of the array so that a
+ * group starting near the end can be read in one load.
+ *
+ * Removal leaves a DELETED byte, which insertion reuses; the tombstones are
+ * dropped when the table is rebuilt.
+ *
+ * Assumes null keys will never be inserted, and does not resize down upon remove().
+ */
+public class MyHashMapSwiss<K, V> implements Map61B<K, V> {
+
+    private static final int DEFAULT_SIZE = 16;
+    private static final double DEFAULT_MAX_LOAD = 0.875;
+    private static final int GROUP_WIDTH = 8;
+
+    private static final byte EMPTY = (byte) 0x80;
+    private static final byte DELETED = (byte) 0xFE;
+
+    private static final long LSBS = 0x0101010101010101L;
+    private static final long MSBS = 0x8080808080808080L;
+
+    /** Reads 8 control bytes at any offset as one little-endian long. */
+    private static final VarHandle GROUP =
+            MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    /* Instance Variables */
+    private byte[] control;
+    private Object[] keys;
+    private Object[] values;
+    private int mask;
+    private int size;
+    /** The number of slots that are not EMPTY: entries and tombstones. */
+    private int used;
+    private int threshold;
+    private final double maxLoad;
+
+    /** Constructors */
+    public MyHashMapSwiss() {
+        this(DEFAULT_SIZE, DEFAULT_MAX_LOAD);
+    }
+
+    public MyHashMapSwiss(int initialSize) {
+        this(initialSize, DEFAULT_MAX_LOAD);
+    }
+
+    /**
+     * MyHashMapSwiss constructor that creates backing arrays of at least
+     * initialSize slots. The load factor (# items / # slots) should always be
+     * <= loadFactor, which must be below 1.
+     *
+     * @param initialSize initial size of backing arrays
+     * @param maxLoad maximum load factor
+     */
+    public MyHashMapSwiss(int initialSize, double maxLoad) {
+        if (maxLoad <= 0 || maxLoad >= 1) {
+            throw new IllegalArgumentException("maxLoad must be between 0 and 1");
+        }
+        this.maxLoad = maxLoad;
+        createTable(tableSizeFor(initialSize));
+    }
+
+    /** Returns the power of two number of slots, at least a group, that holds N entries. */
+    private static int tableSizeFor(int n) {
+        int capacity = 2 * GROUP_WIDTH;
+        while (capacity < n) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private void createTable(int tableSize) {
+        control = new byte[tableSize + GROUP_WIDTH];
+        java.util.Arrays.fill(control, EMPTY);
+        keys = new Object[tableSize];
+        values = new Object[tableSize];
+        mask = tableSize - 1;
+        used = 0;
+        threshold = Math.min((int) (tableSize * maxLoad), tableSize - 1);
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /** Returns the 7 bits of hash H kept in the control byte. */
+    private static byte h2(int h) {
+        return (byte) (h & 0x7F);
+    }
+
+    /** Returns the slot at which probing for hash H starts. */
+    private int h1(int h) {
+        return (h >>> 7) & mask;
+    }
+
+    private long group(int slot) {
+        return (long) GROUP.get(control, slot);
+    }
+
+    /** Returns a word with the top bit set in each byte of GROUP equal to B. May
+     *  have false positives above a true match, which equals() rules out. */
+    private static long matchByte(long group, byte b) {
+        long x = group ^ (LSBS * (b & 0xFF));
+        return (x - LSBS) & ~x & MSBS;
+    }
+
+    private static long matchEmpty(long group) {
+        return group & (~group << 6) & MSBS;
+    }
+
+    private static long matchEmptyOrDeleted(long group) {
+        return group & (~group << 7) & MSBS;
+    }
+
+    /** Returns the index within its group of the lowest byte flagged in MATCHES. */
+    private static int lowest(long matches) {
+        return Long.numberOfTrailingZeros(matches) >>> 3;
+    }
+
+    /** Sets the control byte of SLOT to B, and its mirror past the end. */
+    private void setControl(int slot, byte b) {
+        control[slot] = b;
+        if (slot < GROUP_WIDTH) {
+            control[slot + mask + 1] = b;
+        }
+    }
+
+    /** Returns the slot of KEY, whose hash is H, or -1 if it is not in the map. */
+    private int find(Object key, int h) {
+        byte tag = h2(h);
+        int pos = h1(h);
+        for (int stride = GROUP_WIDTH; ; stride += GROUP_WIDTH) {
+            long group = group(pos);
+            for (long m = matchByte(group, tag); m != 0; m &= m - 1) {
+                int slot = (pos + lowest(m)) & mask;
+                if (key.equals(keys[slot])) {
+                    return slot;
+                }
+            }
+            if (matchEmpty(group) != 0) {
+                return -1;
+            }
+            pos = (pos + stride) & mask;
+        }
+    }
+
+    /** Returns the first EMPTY or DELETED slot on the probe sequence of hash H. */
+    private int findInsertSlot(int h) {
+        int pos = h1(h);
+        for (int stride = GROUP_WIDTH; ; stride += GROUP_WIDTH) {
+            long m = matchEmptyOrDeleted(group(pos));
+            if (m != 0) {
+                return (pos + lowest(m)) & mask;
+            }
+            pos = (pos + stride) & mask;
+        }
+    }
+
+    @Override
+    public void clear() {
+        createTable(tableSizeFor(DEFAULT_SIZE));
+        size = 0;
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        return find(key, hash(key)) >= 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(K key) {
+        int slot = find(key, hash(key));
+        return slot < 0 ? null : (V) values[slot];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void put(K key, V value) {
+        int h = hash(key);
+        int slot = find(key, h);
+        if (slot >= 0) {
+            values[slot] = value;
+            return;
+        }
+        slot = findInsertSlot(h);
+        if (control[slot] == EMPTY && used >= threshold) {
+            /* Drop the tombstones, growing only if they are not what fills the table */
+            rebuild(size >= threshold / 2 ? (mask + 1) * 2 : mask + 1);
+            slot = findInsertSlot(h);
+        }
+        if (control[slot] == EMPTY) {
+            used += 1;
+        }
+        setControl(slot, h2(h));
+        keys[slot] = key;
+        values[slot] = value;
+        size += 1;
+    }
+
+    /** Moves every entry into new arrays of TABLESIZE slots. */
+    private void rebuild(int tableSize) {
+        byte[] oldControl = control;
+        Object[] oldKeys = keys;
+        Object[] oldValues = values;
+        createTable(tableSize);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldControl[i] >= 0) {
+                int h = hash(oldKeys[i]);
+                int slot = findInsertSlot(h);
+                setControl(slot, h2(h));
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+                used += 1;
+            }
+        }
+    }
+
+    @Override
+    public Set<K> keySet() {
+        Set<K> result = new HashSet<>();
+        for (K key : this) {
+            result.add(key);
+        }
+        return result;
+    }
+
+    @Override
+    public V remove(K key) {
+        int slot = find(key, hash(key));
+        if (slot < 0) {
+            return null;
+        }
+        return removeSlot(slot);
+    }
+
+    @Override
+    public V remove(K key, V value) {
+        int slot = find(key, hash(key));
+        if (slot < 0 || !values[slot].equals(value)) {
+            return null;
+        }
+        return removeSlot(slot);
+    }
+
+    @SuppressWarnings("unchecked")
+    private V removeSlot(int slot) {
+        V old = (V) values[slot];
+        setControl(slot, DELETED);
+        keys[slot] = null;
+        values[slot] = null;
+        size -= 1;
+        return old;
+    }
+
+    @Override
+    public Iterator<K> iterator() {
+        return new Iterator<K>() {
+            private int slot = advance(0);
+
+            private int advance(int from) {
+                while (from < keys.length && control[from] < 0) {
+                    from++;
+                }
+                return from;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return slot < keys.length;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public K next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                K key = (K) keys[slot];
+                slot = advance(slot + 1);
+                return key;
+            }
+        };
+    }
+}
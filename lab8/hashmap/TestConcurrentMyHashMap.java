@@ -0,0 +1,114 @@
+package hashmap;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntConsumer;
+
+/** Tests of ConcurrentMyHashMap, alone and shared across threads. */
+public class TestConcurrentMyHashMap {
+
+    @Test
+    public void sanityTests() {
+        TestMyHashMap.sanityClearTest(new ConcurrentMyHashMap<>());
+        TestMyHashMap.sanityContainsKeyTest(new ConcurrentMyHashMap<>());
+        TestMyHashMap.sanityGetTest(new ConcurrentMyHashMap<>());
+        TestMyHashMap.sanitySizeTest(new ConcurrentMyHashMap<>());
+        TestMyHashMap.sanityPutTest(new ConcurrentMyHashMap<>());
+        TestMyHashMap.sanityKeySetTest(new ConcurrentMyHashMap<>());
+        TestMyHashMap.functionalityTest(new ConcurrentMyHashMap<>(), new ConcurrentMyHashMap<>());
+        TestMyHashMapOpenAddressing.removeTest(new ConcurrentMyHashMap<>());
+    }
+
+    /** Runs BODY on THREADS threads, each given its index, and rethrows the first failure. */
+    private static void runThreads(int threads, IntConsumer body) throws InterruptedException {
+        List<Thread> started = new ArrayList<>();
+        List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+        for (int t = 0; t < threads; t++) {
+            int index = t;
+            Thread thread = new Thread(() -> {
+                try {
+                    body.accept(index);
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+            });
+            started.add(thread);
+            thread.start();
+        }
+        for (Thread thread : started) {
+            thread.join();
+        }
+        if (!failures.isEmpty()) {
+            throw new AssertionError(failures.get(0));
+        }
+    }
+
+    // Threads insert disjoint ranges from a tiny table, so they all help resize it many times.
+    @Test
+    public void concurrentPutTest() throws InterruptedException {
+        ConcurrentMyHashMap<Integer, Integer> map = new ConcurrentMyHashMap<>(2);
+        int threads = 8;
+        int perThread = 20000;
+        runThreads(threads, t -> {
+            for (int i = t * perThread; i < (t + 1) * perThread; i++) {
+                map.put(i, -i);
+            }
+        });
+        assertEquals(threads * perThread, map.size());
+        for (int i = 0; i < threads * perThread; i++) {
+            assertEquals(-i, map.get(i).intValue());
+        }
+        assertEquals(threads * perThread, map.keySet().size());
+    }
+
+    // Keys present from the start must stay visible to readers while writers resize the table.
+    @Test
+    public void readersDuringResizeTest() throws InterruptedException {
+        ConcurrentMyHashMap<Integer, Integer> map = new ConcurrentMyHashMap<>(2);
+        for (int i = 0; i < 1000; i++) {
+            map.put(-1 - i, i);
+        }
+        AtomicBoolean writing = new AtomicBoolean(true);
+        runThreads(6, t -> {
+            if (t < 2) {
+                for (int i = t; i < 200000; i += 2) {
+                    map.put(i, i);
+                }
+                writing.set(false);
+            } else {
+                while (writing.get()) {
+                    for (int i = 0; i < 1000; i++) {
+                        assertEquals(i, map.get(-1 - i).intValue());
+                    }
+                }
+            }
+        });
+        assertEquals(201000, map.size());
+    }
+
+    // Threads add and remove overlapping keys, then the map must match what each kept.
+    @Test
+    public void concurrentRemoveTest() throws InterruptedException {
+        ConcurrentMyHashMap<Integer, Integer> map = new ConcurrentMyHashMap<>();
+        int threads = 4;
+        runThreads(threads, t -> {
+            for (int i = 0; i < 50000; i++) {
+                int key = i * threads + t;
+                map.put(key, t);
+                if (i % 2 == 0) {
+                    assertEquals(t, map.remove(key).intValue());
+                }
+            }
+        });
+        assertEquals(threads * 25000, map.size());
+        for (int key : map.keySet()) {
+            assertEquals(1, (key / threads) % 2);
+            assertEquals(key % threads, map.get(key).intValue());
+        }
+    }
+}
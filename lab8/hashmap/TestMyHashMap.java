@@ -3,7 +3,9 @@ package hashmap;
 import static org.junit.Assert.*;
 import org.junit.Test;
 
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Random;
 import java.util.Set;
 
 /**
@@ -27,7 +29,7 @@ public class TestMyHashMap {
         sanityClearTest(new MyHashMap<>());
     }
 
-    public static void sanityClearTest(MyHashMap<String, Integer> b) {
+    public static void sanityClearTest(Map61B<String, Integer> b) {
         for (int i = 0; i < 455; i++) {
             b.put("hi" + i, 1);
             //make sure put is working via containsKey and get
@@ -47,7 +49,7 @@ public class TestMyHashMap {
         sanityContainsKeyTest(new MyHashMap<>());
     }
 
-    public static void sanityContainsKeyTest(MyHashMap<String, Integer> b) {
+    public static void sanityContainsKeyTest(Map61B<String, Integer> b) {
         assertFalse(b.containsKey("waterYouDoingHere"));
         b.put("waterYouDoingHere", 0);
         assertTrue(b.containsKey("waterYouDoingHere"));
@@ -59,7 +61,7 @@ public class TestMyHashMap {
         sanityGetTest(new MyHashMap<>());
     }
 
-    public static void sanityGetTest(MyHashMap<String, Integer> b) {
+    public static void sanityGetTest(Map61B<String, Integer> b) {
         assertEquals(null, b.get("starChild"));
         b.put("starChild", 5);
         assertNotEquals(null, b.get("starChild"));
@@ -74,7 +76,7 @@ public class TestMyHashMap {
         sanitySizeTest(new MyHashMap<>());
     }
 
-    public static void sanitySizeTest(MyHashMap<String, Integer> b) {
+    public static void sanitySizeTest(Map61B<String, Integer> b) {
         assertEquals(0, b.size());
         b.put("hi", 1);
         assertEquals(1, b.size());
@@ -90,7 +92,7 @@ public class TestMyHashMap {
         sanityPutTest(new MyHashMap<>());
     }
 
-    public static void sanityPutTest(MyHashMap<String, Integer> b) {
+    public static void sanityPutTest(Map61B<String, Integer> b) {
         b.put("hi", 1);
         assertTrue(b.containsKey("hi") && b.get("hi") != null);
     }
@@ -100,7 +102,7 @@ public class TestMyHashMap {
         sanityKeySetTest(new MyHashMap<>());
     }
 
-    public static void sanityKeySetTest(MyHashMap<String, Integer> b) {
+    public static void sanityKeySetTest(Map61B<String, Integer> b) {
         HashSet<String> values = new HashSet<String>();
         for (int i = 0; i < 455; i++) {
             b.put("hi" + i, 1);
@@ -118,8 +120,8 @@ public class TestMyHashMap {
         functionalityTest(new MyHashMap<>(), new MyHashMap<>());
     }
 
-    public static void functionalityTest(MyHashMap<String, String> dictionary,
-                                   MyHashMap<String, Integer> studentIDs) {
+    public static void functionalityTest(Map61B<String, String> dictionary,
+                                   Map61B<String, Integer> studentIDs) {
         assertEquals(0, dictionary.size());
 
         // can put objects in dictionary and get them
@@ -158,4 +160,31 @@ public class TestMyHashMap {
         assertEquals(345, studentIDs.get("evil alan").intValue());
         assertEquals(studentIDs.get("evil alan"), studentIDs.get("alan"));
     }
+
+    // The same properties must hold while an incremental resize is moving buckets.
+    @Test
+    public void incrementalResizeTest() {
+        sanityClearTest(new MyHashMap<>(16, 0.75, true));
+        sanitySizeTest(new MyHashMap<>(16, 0.75, true));
+        sanityKeySetTest(new MyHashMap<>(16, 0.75, true));
+        functionalityTest(new MyHashMap<>(1, 0.75, true), new MyHashMap<>(1, 0.75, true));
+        // A low load factor moves more buckets per operation
+        functionalityTest(new MyHashMap<>(1, 0.25, true), new MyHashMap<>(1, 0.25, true));
+
+        MyHashMap<Integer, Integer> map = new MyHashMap<>(1, 0.75, true);
+        HashMap<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(61);
+        for (int i = 0; i < 20000; i++) {
+            int key = random.nextInt(5000) - 2500;
+            if (random.nextInt(4) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                expected.put(key, i);
+                map.put(key, i);
+            }
+            assertEquals(expected.size(), map.size());
+            assertEquals(expected.get(-key), map.get(-key));
+        }
+        assertEquals(expected.keySet(), map.keySet());
+    }
 }
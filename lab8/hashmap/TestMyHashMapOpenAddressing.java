@@ -0,0 +1,123 @@
+package hashmap;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Random;
+
+/** Tests of the open addressing hash tables. */
+public class TestMyHashMapOpenAddressing {
+
+    @Test
+    public void sanityClearTest() {
+        TestMyHashMap.sanityClearTest(new MyHashMapRobinHood<>());
+        TestMyHashMap.sanityClearTest(new MyHashMapSwiss<>());
+    }
+
+    @Test
+    public void sanityContainsKeyTest() {
+        TestMyHashMap.sanityContainsKeyTest(new MyHashMapRobinHood<>());
+        TestMyHashMap.sanityContainsKeyTest(new MyHashMapSwiss<>());
+    }
+
+    @Test
+    public void sanityGetTest() {
+        TestMyHashMap.sanityGetTest(new MyHashMapRobinHood<>());
+        TestMyHashMap.sanityGetTest(new MyHashMapSwiss<>());
+    }
+
+    @Test
+    public void sanitySizeTest() {
+        TestMyHashMap.sanitySizeTest(new MyHashMapRobinHood<>());
+        TestMyHashMap.sanitySizeTest(new MyHashMapSwiss<>());
+    }
+
+    @Test
+    public void sanityPutTest() {
+        TestMyHashMap.sanityPutTest(new MyHashMapRobinHood<>());
+        TestMyHashMap.sanityPutTest(new MyHashMapSwiss<>());
+    }
+
+    @Test
+    public void sanityKeySetTest() {
+        TestMyHashMap.sanityKeySetTest(new MyHashMapRobinHood<>());
+        TestMyHashMap.sanityKeySetTest(new MyHashMapSwiss<>());
+    }
+
+    @Test
+    public void functionalityTest() {
+        TestMyHashMap.functionalityTest(new MyHashMapRobinHood<>(), new MyHashMapRobinHood<>());
+        TestMyHashMap.functionalityTest(new MyHashMapSwiss<>(), new MyHashMapSwiss<>());
+    }
+
+    @Test
+    public void removeTest() {
+        removeTest(new MyHashMapRobinHood<>());
+        removeTest(new MyHashMapSwiss<>());
+    }
+
+    public static void removeTest(Map61B<String, String> q) {
+        q.put("c", "a");
+        q.put("b", "a");
+        q.put("a", "a");
+        q.put("d", "a");
+        q.put("e", "a");
+        assertEquals("a", q.remove("c"));
+        assertNull(q.remove("c"));
+        assertNull(q.remove("d", "b"));
+        assertEquals("a", q.remove("d", "a"));
+        assertEquals(3, q.size());
+        assertTrue(q.containsKey("a"));
+        assertTrue(q.containsKey("b"));
+        assertFalse(q.containsKey("d"));
+        assertTrue(q.containsKey("e"));
+    }
+
+    /** Keys that all collide in the low bits, so every operation probes long runs. */
+    private static class Collider {
+        private final int id;
+
+        Collider(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Collider && ((Collider) o).id == id;
+        }
+
+        @Override
+        public int hashCode() {
+            return id % 4;
+        }
+    }
+
+    // Random puts and removes, including runs of colliding keys, against java.util.HashMap.
+    @Test
+    public void randomizedTest() {
+        randomizedTest(new MyHashMapRobinHood<>());
+        randomizedTest(new MyHashMapSwiss<>());
+        randomizedTest(new MyHashMapRobinHood<>(1, 0.5));
+        randomizedTest(new MyHashMapSwiss<>(1, 0.5));
+    }
+
+    private static void randomizedTest(Map61B<Collider, Integer> map) {
+        HashMap<Collider, Integer> expected = new HashMap<>();
+        Random random = new Random(61);
+        for (int i = 0; i < 20000; i++) {
+            Collider key = new Collider(random.nextInt(i % 1000 < 500 ? 64 : 3000));
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                assertEquals(expected.put(key, i), map.get(key));
+                map.put(key, i);
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        for (Collider key : expected.keySet()) {
+            assertEquals(expected.get(key), map.get(key));
+        }
+        assertEquals(expected.keySet(), map.keySet());
+    }
+}
@@ -0,0 +1,117 @@
+package hashmap;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Random;
+
+/** Tests of the maps with primitive keys. */
+public class TestPrimitiveMaps {
+
+    @Test
+    public void intIntBasicsTest() {
+        IntIntMap map = new IntIntMap();
+        assertEquals(0, map.size());
+        assertEquals(-1, map.get(7, -1));
+        map.put(7, 70);
+        map.put(0, 5);
+        map.put(-3, 30);
+        assertEquals(3, map.size());
+        assertTrue(map.containsKey(0));
+        assertEquals(70, map.get(7, -1));
+        assertEquals(5, map.get(0, -1));
+        map.put(7, 71);
+        assertEquals(71, map.get(7, -1));
+        assertEquals(3, map.size());
+        assertEquals(6, map.addTo(0, 1));
+        assertEquals(2, map.addTo(8, 2));
+        assertEquals(6, map.remove(0, -1));
+        assertEquals(-1, map.remove(0, -1));
+        assertFalse(map.containsKey(0));
+        map.clear();
+        assertEquals(0, map.size());
+        assertFalse(map.containsKey(7));
+    }
+
+    @Test
+    public void objectMapsBasicsTest() {
+        IntObjectMap<String> ints = new IntObjectMap<>();
+        LongObjectMap<String> longs = new LongObjectMap<>();
+        ints.put(0, "zero");
+        ints.put(42, "answer");
+        longs.put(0L, "zero");
+        longs.put(1L << 40, "big");
+        longs.put(1L, "one");
+        assertEquals("zero", ints.get(0));
+        assertEquals("answer", ints.get(42));
+        assertNull(ints.get(43));
+        assertEquals("big", longs.get(1L << 40));
+        assertNull(longs.get(1L << 41));
+        assertEquals("big", longs.remove(1L << 40));
+        assertNull(longs.remove(1L << 40));
+        assertEquals(2, longs.size());
+        assertEquals("zero", ints.remove(0));
+        assertEquals(1, ints.size());
+    }
+
+    @Test
+    public void cursorTest() {
+        IntIntMap map = new IntIntMap();
+        HashMap<Integer, Integer> expected = new HashMap<>();
+        for (int i = -50; i < 50; i++) {
+            map.put(i * 7, i);
+            expected.put(i * 7, i);
+        }
+        HashMap<Integer, Integer> seen = new HashMap<>();
+        for (IntIntMap.Cursor c = map.cursor(); c.advance(); ) {
+            seen.put(c.key(), c.value());
+            c.setValue(c.value() + 1);
+        }
+        assertEquals(expected, seen);
+        assertEquals(1, map.get(0, -1));
+
+        LongObjectMap<String> longs = new LongObjectMap<>();
+        longs.put(3L, "c");
+        int count = 0;
+        for (LongObjectMap<String>.Cursor c = longs.cursor(); c.advance(); ) {
+            assertEquals(3L, c.key());
+            assertEquals("c", c.value());
+            count += 1;
+        }
+        assertEquals(1, count);
+        assertFalse(new IntObjectMap<String>().cursor().advance());
+    }
+
+    // Random puts and removes, with keys crowded into a few runs, against java.util.HashMap.
+    @Test
+    public void randomizedTest() {
+        IntIntMap ints = new IntIntMap(1, 0.5);
+        IntObjectMap<Integer> objects = new IntObjectMap<>();
+        LongObjectMap<Integer> longs = new LongObjectMap<>();
+        HashMap<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(61);
+        for (int i = 0; i < 50000; i++) {
+            int key = (random.nextInt(i % 2000 < 1000 ? 64 : 4000) - 32) << 10;
+            if (random.nextInt(3) == 0) {
+                Integer old = expected.remove(key);
+                assertEquals(old == null ? -1 : old, ints.remove(key, -1));
+                assertEquals(old, objects.remove(key));
+                assertEquals(old, longs.remove((long) key << 20));
+            } else {
+                expected.put(key, i);
+                ints.put(key, i);
+                objects.put(key, i);
+                longs.put((long) key << 20, i);
+            }
+            assertEquals(expected.size(), ints.size());
+            assertEquals(expected.size(), objects.size());
+            assertEquals(expected.size(), longs.size());
+        }
+        for (int key : expected.keySet()) {
+            assertEquals(expected.get(key).intValue(), ints.get(key, -1));
+            assertEquals(expected.get(key), objects.get(key));
+            assertEquals(expected.get(key), longs.get((long) key << 20));
+        }
+    }
+}
@@ -11,6 +11,8 @@ import hashmap.MyHashMapLLBuckets;
 import hashmap.MyHashMapTSBuckets;
 import hashmap.MyHashMapHSBuckets;
 import hashmap.MyHashMapPQBuckets;
+import hashmap.MyHashMapRobinHood;
+import hashmap.MyHashMapSwiss;
 
 /** Performs a timing test on three different set implementations.
  *  @author Neil Kulkarni adapted from Josh Hug, Brendan Hu
@@ -42,6 +44,8 @@ public class BucketsSpeedTest {
             timeRandomMap61B(new MyHashMapTSBuckets<>(), N, L);
             timeRandomMap61B(new MyHashMapHSBuckets<>(), N, L);
             timeRandomMap61B(new MyHashMapPQBuckets<>(), N, L);
+            timeRandomMap61B(new MyHashMapRobinHood<>(), N, L);
+            timeRandomMap61B(new MyHashMapSwiss<>(), N, L);
 
             System.out.print("\nWould you like to try more timed-tests? (y/n)");
             repeat = input.nextLine();
@@ -65,13 +69,16 @@ public class BucketsSpeedTest {
 
     /**
      * Attempts to insert N random strings of length L into map,
-     * Prints time of the N insert calls, otherwise
+     * Prints time of the N insert calls and the heap used per entry,
+     * keys and values included, otherwise
      * Prints a nice message about the error
      */
     public static void timeRandomMap61B(Map61B<String, Integer> map, int N, int L) {
         try {
+            long before = usedMemory();
             double mapTime = insertRandom(map, N, L);
-            System.out.printf(map.getClass() + ": %.2f sec\n", mapTime);
+            double bytes = (double) (usedMemory() - before) / map.size();
+            System.out.printf(map.getClass() + ": %.2f sec, %.0f bytes/entry\n", mapTime, bytes);
         } catch (StackOverflowError e) {
             printInfoOnStackOverflow(N, L);
         } catch (RuntimeException e) {
@@ -96,6 +103,18 @@ public class BucketsSpeedTest {
         } while (ret <= 0);
         return ret;
     }
+
+    /**
+     * Returns the bytes of heap in use after a garbage collection.
+     */
+    public static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
     /* ------------------------------- Private methods ------------------------------- */
     /**
      * To be called after catching a StackOverflowError
@@ -0,0 +1,100 @@
+package speed;
+
+import edu.princeton.cs.algs4.Stopwatch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Scanner;
+import java.util.concurrent.ConcurrentHashMap;
+
+import hashmap.ConcurrentMyHashMap;
+import hashmap.Map61B;
+
+/** Measures how the throughput of ConcurrentMyHashMap scales with the number
+ *  of threads sharing it, next to Java's ConcurrentHashMap.
+ */
+public class ConcurrentSpeedTest {
+    /** The percentage of operations that are puts; the rest are gets. */
+    private static final int PUT_PERCENT = 20;
+    /** Keys are drawn from this many distinct ints. */
+    private static final int KEY_RANGE = 1 << 20;
+    /** Receives the sum of the values read, so that the gets are not optimized away. */
+    private static volatile long sink;
+
+    /**
+     * Requests user input and runs a mix of gets and puts on each map with
+     * 1 to N threads. ARGS is unused.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        Scanner input = new Scanner(System.in);
+
+        System.out.println("\n This program runs " + (100 - PUT_PERCENT) + "% gets and "
+                + PUT_PERCENT + "% puts of random int keys\n"
+                + " On maps shared by 1 to N threads.\n");
+        System.out.print("What would you like N to be?: ");
+        int maxThreads = BucketsSpeedTest.waitForPositiveInt(input);
+
+        String repeat = "y";
+        do {
+            System.out.print("\nEnter # operations per thread: ");
+            int ops = BucketsSpeedTest.waitForPositiveInt(input);
+
+            for (int threads = 1; threads <= maxThreads; threads++) {
+                ConcurrentMyHashMap<Integer, Integer> map = new ConcurrentMyHashMap<>();
+                double mapRate = run(threads, ops, map::get, map::put);
+                ConcurrentHashMap<Integer, Integer> javaMap = new ConcurrentHashMap<>();
+                double javaRate = run(threads, ops, javaMap::get, javaMap::put);
+                System.out.printf("%2d threads: ConcurrentMyHashMap %,.0f ops/sec, "
+                        + "Java's ConcurrentHashMap %,.0f ops/sec\n", threads, mapRate, javaRate);
+            }
+
+            System.out.print("\nWould you like to try more timed-tests? (y/n)");
+            repeat = input.nextLine();
+        } while (!repeat.equalsIgnoreCase("n") && !repeat.equalsIgnoreCase("no"));
+        input.close();
+    }
+
+    /** The get of the map under test. */
+    private interface Getter {
+        Integer get(Integer key);
+    }
+
+    /** The put of the map under test. */
+    private interface Putter {
+        void put(Integer key, Integer value);
+    }
+
+    /**
+     * Returns the operations per second of THREADS threads each running OPS
+     * operations on the map with GET and PUT.
+     */
+    private static double run(int threads, int ops, Getter get, Putter put) throws InterruptedException {
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long seed = t;
+            workers.add(new Thread(() -> {
+                Random random = new Random(seed);
+                long sum = 0;
+                for (int i = 0; i < ops; i++) {
+                    Integer key = random.nextInt(KEY_RANGE);
+                    if (random.nextInt(100) < PUT_PERCENT) {
+                        put.put(key, i);
+                    } else {
+                        Integer value = get.get(key);
+                        sum += value == null ? 0 : value;
+                    }
+                }
+                sink = sum;
+            }));
+        }
+        Stopwatch sw = new Stopwatch();
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return (double) threads * ops / sw.elapsedTime();
+    }
+}
@@ -8,6 +8,8 @@ import edu.princeton.cs.algs4.Stopwatch;
 import hashmap.Map61B;
 import hashmap.ULLMap;
 import hashmap.MyHashMap;
+import hashmap.MyHashMapRobinHood;
+import hashmap.MyHashMapSwiss;
 
 /** Performs a timing test on three different set implementations.
  *  @author Josh Hug
@@ -39,6 +41,14 @@ public class InsertRandomSpeedTest {
             timeRandomMap61B(new MyHashMap<String, Integer>(),
                     waitForPositiveInt(input), L);
 
+            System.out.print("\nEnter # strings to insert into hashmap.MyHashMapRobinHood: ");
+            timeRandomMap61B(new MyHashMapRobinHood<String, Integer>(),
+                    waitForPositiveInt(input), L);
+
+            System.out.print("\nEnter # strings to insert into hashmap.MyHashMapSwiss: ");
+            timeRandomMap61B(new MyHashMapSwiss<String, Integer>(),
+                    waitForPositiveInt(input), L);
+
             System.out.print("\nEnter # strings to insert into Java's HashMap: ");
             timeRandomHashMap(new HashMap<String, Integer>(),
                     waitForPositiveInt(input), L);
@@ -79,13 +89,16 @@ public class InsertRandomSpeedTest {
 
     /**
      * Attempts to insert N random strings of length L into map,
-     * Prints time of the N insert calls, otherwise
+     * Prints time of the N insert calls and the heap used per entry,
+     * keys and values included, otherwise
      * Prints a nice message about the error
      */
     public static void timeRandomMap61B(Map61B<String, Integer> map, int N, int L) {
         try {
+            long before = usedMemory();
             double mapTime = insertRandom(map, N, L);
-            System.out.printf(map.getClass() + ": %.2f sec\n", mapTime);
+            double bytes = (double) (usedMemory() - before) / map.size();
+            System.out.printf(map.getClass() + ": %.2f sec, %.0f bytes/entry\n", mapTime, bytes);
         } catch (StackOverflowError e) {
             printInfoOnStackOverflow(N, L);
         } catch (RuntimeException e) {
@@ -95,13 +108,16 @@ public class InsertRandomSpeedTest {
 
     /**
      * Attempts to insert N random strings of length L into a HashMap
-     * Prints time of the N insert calls, otherwise
+     * Prints time of the N insert calls and the heap used per entry,
+     * keys and values included, otherwise
      * Prints a nice message about the error
      */
     public static void timeRandomHashMap(HashMap<String, Integer> hashMap, int N, int L) {
         try {
+            long before = usedMemory();
             double javaTime = insertRandom(hashMap, N, L);
-            System.out.printf("Java's Built-in HashMap: %.2f sec\n", javaTime);
+            double bytes = (double) (usedMemory() - before) / hashMap.size();
+            System.out.printf("Java's Built-in HashMap: %.2f sec, %.0f bytes/entry\n", javaTime, bytes);
         } catch (StackOverflowError e) {
             printInfoOnStackOverflow(N, L);
         } catch (RuntimeException e) {
@@ -126,6 +142,18 @@ public class InsertRandomSpeedTest {
         } while (ret <= 0);
         return ret;
     }
+
+    /**
+     * Returns the bytes of heap in use after a garbage collection.
+     */
+    public static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
     /* ------------------------------- Private methods ------------------------------- */
     /**
      * To be called after catching a StackOverflowError
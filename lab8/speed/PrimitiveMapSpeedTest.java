@@ -0,0 +1,119 @@
+package speed;
+
+import edu.princeton.cs.algs4.Stopwatch;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import java.util.Scanner;
+
+import hashmap.IntIntMap;
+import hashmap.Map61B;
+import hashmap.MyHashMap;
+import hashmap.MyHashMapRobinHood;
+
+/** Compares the time and the heap allocated by maps keyed by ints, boxed
+ *  and unboxed.
+ */
+public class PrimitiveMapSpeedTest {
+    /** Counts the bytes allocated by a thread. */
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /**
+     * Requests user input and times N puts, N gets and N removes of random
+     * int keys on each map. ARGS is unused.
+     */
+    public static void main(String[] args) {
+        Scanner input = new Scanner(System.in);
+
+        System.out.println("\n This program puts, gets and removes random "
+                + "int keys\n"
+                + " In maps that box them and in an IntIntMap.\n");
+
+        String repeat = "y";
+        do {
+            System.out.print("\nEnter # ints to put into each map: ");
+            int N = BucketsSpeedTest.waitForPositiveInt(input);
+            int[] keys = randomKeys(N);
+
+            timeMap61B(new MyHashMap<>(), keys);
+            timeMap61B(new MyHashMapRobinHood<>(), keys);
+            timeIntIntMap(new IntIntMap(), keys);
+
+            System.out.print("\nWould you like to try more timed-tests? (y/n)");
+            repeat = input.nextLine();
+        } while (!repeat.equalsIgnoreCase("n") && !repeat.equalsIgnoreCase("no"));
+        input.close();
+    }
+
+    /** Returns N random keys, drawn before timing so that drawing is not counted. */
+    private static int[] randomKeys(int N) {
+        Random random = new Random(61);
+        int[] keys = new int[N];
+        for (int i = 0; i < N; i++) {
+            keys[i] = random.nextInt();
+        }
+        return keys;
+    }
+
+    /** Returns the bytes allocated so far by the current thread. */
+    private static long allocated() {
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Puts, gets and removes KEYS in map, and prints the time taken and the
+     * bytes allocated per operation, otherwise
+     * Prints a nice message about the error
+     */
+    public static void timeMap61B(Map61B<Integer, Integer> map, int[] keys) {
+        try {
+            long before = allocated();
+            Stopwatch sw = new Stopwatch();
+            long sum = 0;
+            for (int i = 0; i < keys.length; i++) {
+                map.put(keys[i], i);
+            }
+            for (int key : keys) {
+                Integer value = map.get(key);
+                sum += value == null ? 0 : value;
+            }
+            for (int key : keys) {
+                map.remove(key);
+            }
+            print(map.getClass().toString(), sw.elapsedTime(), allocated() - before, keys.length, sum);
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Puts, gets and removes KEYS in map, and prints the time taken and the
+     * bytes allocated per operation.
+     */
+    public static void timeIntIntMap(IntIntMap map, int[] keys) {
+        long before = allocated();
+        Stopwatch sw = new Stopwatch();
+        long sum = 0;
+        for (int i = 0; i < keys.length; i++) {
+            map.put(keys[i], i);
+        }
+        for (int key : keys) {
+            sum += map.get(key, 0);
+        }
+        for (int key : keys) {
+            map.remove(key, 0);
+        }
+        print(map.getClass().toString(), sw.elapsedTime(), allocated() - before, keys.length, sum);
+    }
+
+    /* ------------------------------- Private methods ------------------------------- */
+    /**
+     * Prints the results of 3 * N operations on the map named NAME. SUM keeps
+     * the gets from being optimized away.
+     */
+    private static void print(String name, double time, long bytes, int N, long sum) {
+        System.out.printf("%s: %.2f sec, %.1f bytes allocated/op (checksum %d)\n",
+                name, time, (double) bytes / (3.0 * N), sum);
+    }
+}
@@ -0,0 +1,139 @@
+package speed;
+
+import java.util.Random;
+import java.util.Scanner;
+
+import hashmap.MyHashMap;
+
+/** Compares the latency of single puts into a MyHashMap that rehashes all at
+ *  once with one that resizes incrementally, as percentiles of a histogram.
+ */
+public class PutLatencySpeedTest {
+    /** The percentiles reported for each map. */
+    private static final double[] PERCENTILES = {50, 99, 99.9, 99.99};
+
+    /**
+     * Requests user input and times each of N puts of random Integer keys
+     * into both maps. ARGS is unused.
+     */
+    public static void main(String[] args) {
+        Scanner input = new Scanner(System.in);
+
+        System.out.println("\n This program times every put of random "
+                + "Integer keys\n"
+                + " Into a MyHashMap with and without incremental resizing.\n");
+
+        String repeat = "y";
+        do {
+            System.out.print("\nEnter # ints to put into each map: ");
+            int N = BucketsSpeedTest.waitForPositiveInt(input);
+            Integer[] keys = randomKeys(N);
+
+            timePuts("MyHashMap", new MyHashMap<>(), keys);
+            timePuts("MyHashMap, incremental resize", new MyHashMap<>(16, 0.75, true), keys);
+
+            System.out.print("\nWould you like to try more timed-tests? (y/n)");
+            repeat = input.nextLine();
+        } while (!repeat.equalsIgnoreCase("n") && !repeat.equalsIgnoreCase("no"));
+        input.close();
+    }
+
+    /** Returns N random keys, boxed before timing so that boxing is not counted. */
+    private static Integer[] randomKeys(int N) {
+        Random random = new Random(61);
+        Integer[] keys = new Integer[N];
+        for (int i = 0; i < N; i++) {
+            keys[i] = random.nextInt();
+        }
+        return keys;
+    }
+
+    /**
+     * Puts KEYS into map one at a time, and prints the percentiles and the
+     * maximum of the latencies of the puts.
+     */
+    public static void timePuts(String name, MyHashMap<Integer, Integer> map, Integer[] keys) {
+        Histogram histogram = new Histogram();
+        Integer value = 0;
+        for (Integer key : keys) {
+            long start = System.nanoTime();
+            map.put(key, value);
+            histogram.record(System.nanoTime() - start);
+        }
+        System.out.print(name + ":");
+        for (double p : PERCENTILES) {
+            System.out.printf(" p%s %s", trim(p), format(histogram.percentile(p)));
+        }
+        System.out.printf(", max %s\n", format(histogram.max));
+    }
+
+    /* ------------------------------- Private methods ------------------------------- */
+
+    /** Returns P without a fractional part if it has none. */
+    private static String trim(double p) {
+        return p == Math.rint(p) ? String.valueOf((long) p) : String.valueOf(p);
+    }
+
+    /** Returns the duration of NANOS nanoseconds in a readable unit. */
+    private static String format(long nanos) {
+        if (nanos < 10_000) {
+            return nanos + "ns";
+        } else if (nanos < 10_000_000) {
+            return (nanos / 1000) + "us";
+        }
+        return (nanos / 1_000_000) + "ms";
+    }
+
+    /**
+     * Counts latencies in buckets of logarithmic width: each power of two is
+     * split into SUB_BUCKETS equal parts, so a recorded value is rounded up by
+     * at most 1 / SUB_BUCKETS of itself, in constant space.
+     */
+    private static class Histogram {
+        private static final int SUB_BITS = 4;
+        private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+        private final long[] counts = new long[64 * SUB_BUCKETS];
+        private long total;
+        private long max;
+
+        /** Records a latency of NANOS nanoseconds. */
+        void record(long nanos) {
+            counts[index(Math.max(nanos, 0))] += 1;
+            total += 1;
+            max = Math.max(max, nanos);
+        }
+
+        private static int index(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+            int sub = (int) (value >>> exponent) - SUB_BUCKETS;
+            return (exponent + 1) * SUB_BUCKETS + sub;
+        }
+
+        /** Returns the highest value of the bucket at INDEX. */
+        private static long highest(int index) {
+            if (index < SUB_BUCKETS) {
+                return index;
+            }
+            int exponent = index / SUB_BUCKETS - 1;
+            int sub = index % SUB_BUCKETS + SUB_BUCKETS;
+            return ((long) (sub + 1) << exponent) - 1;
+        }
+
+        /** Returns the latency that P percent of the recorded latencies do not exceed. */
+        long percentile(double p) {
+            long rank = (long) Math.ceil(total * p / 100);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank && seen > 0) {
+                    return Math.min(highest(i), max);
+                }
+            }
+            return max;
+        }
+    }
+}
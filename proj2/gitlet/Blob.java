@@ -1,24 +1,283 @@
 package gitlet;
 
-import java.io.File;
-import java.io.Serializable;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.zip.Deflater;
 
+import static java.nio.file.StandardOpenOption.*;
+
+/** Represents the content of a tracked file.
+ *  The content is split into content-defined chunks which are stored as objects of their
+ *  own, so the blob itself is only a manifest of chunk IDs. Versions of a file that share
+ *  most of their content also share most of their chunks. A stored chunk is a header byte
+ *  followed by the chunk content, raw or DEFLATE-compressed.
+ *
+ *  IDs are framed as described in Codec: a chunk is identified by the hash of its raw
+ *  content under a "chunk" header, and a blob by the hash of the IDs of its chunks under a
+ *  "blob" header with the size of the whole content. The chunk boundaries only depend on
+ *  the content, so equal contents always have equal blob IDs, and no blob, chunk, tree or
+ *  commit can share an ID with an object of another kind.
+ *
+ *  File contents are only ever handled as bytes streamed through fixed-size buffers, so
+ *  memory use does not depend on the size of the file and binary files are kept intact.
+ *  @author Ethan
+ */
 public class Blob implements Serializable {
-    private final String content;
+    /** The header byte of a chunk whose content follows uncompressed. */
+    static final byte STORED = 0;
+    /** The header byte of a chunk whose content follows DEFLATE-compressed. */
+    static final byte DEFLATED = 1;
+    /** The size of the buffer file contents are streamed through. */
+    private static final int BUFFER_SIZE = 2 * Chunker.MAX_SIZE;
+
+    /** The ID of this blob. */
+    private final String UID;
+    /** The number of bytes in the content. */
+    private final long size;
+    /** The IDs of the chunks of the content, in order. */
+    private final ArrayList<String> chunks;
+    /** The file the content is read from when the blob is saved, if any. */
+    private transient File file;
+    /** The content given in memory, if any. */
+    private transient byte[] content;
+    /** True once every chunk of this blob is known to be stored. */
+    private transient boolean chunksStored;
 
     public Blob(File file) {
-        this.content = Utils.readContentsAsString(file);
+        this(file, false);
+    }
+
+    /** Create the blob of the content of FILE. If SAVE is true, its chunks are stored in the
+     *  same pass that hashes them, so the file is read only once and save() only has to
+     *  store the manifest, which then always describes the chunks that were stored. */
+    public Blob(File file, boolean save) {
+        this.file = file;
+        this.chunks = new ArrayList<>();
+        this.size = split(chunks, save);
+        this.UID = hash(size, chunks);
+        this.chunksStored = save;
+    }
+
+    private Blob(String UID, long size, ArrayList<String> chunks) {
+        this.UID = UID;
+        this.size = size;
+        this.chunks = chunks;
+    }
+
+    /** Write the manifest of this blob to OUT in the compact binary format. */
+    void encode(Codec.Encoder out) {
+        out.writeHash(UID);
+        out.writeVarint(size);
+        out.writeVarint(chunks.size());
+        for (String chunkUID : chunks) {
+            out.writeHash(chunkUID);
+        }
+    }
+
+    /** Return the blob whose manifest is read from IN. */
+    static Blob decode(Codec.Decoder in) {
+        String UID = in.readHash();
+        long size = in.readVarint();
+        int count = in.readCount();
+        ArrayList<String> chunks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            chunks.add(in.readHash());
+        }
+        return new Blob(UID, size, chunks);
     }
 
     public Blob(String content) {
+        this(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Create the blob of CONTENT, which must not be changed afterwards. */
+    public Blob(byte[] content) {
         this.content = content;
+        this.chunks = new ArrayList<>();
+        this.size = split(chunks, false);
+        this.UID = hash(size, chunks);
+    }
+
+    /** Store the chunks of this blob that are not stored yet, then the blob itself.
+     *  Nothing is read or written if the blob is already stored. A file whose content no
+     *  longer matches the blob is reported instead of being stored under the old ID. */
+    public void save() {
+        if (ObjectStore.contains(UID)) {
+            return;
+        }
+        if (!chunksStored) {
+            ArrayList<String> stored = new ArrayList<>();
+            if (split(stored, true) != size || !stored.equals(chunks)) {
+                throw Utils.error("File %s changed while it was being saved.", file.getName());
+            }
+            chunksStored = true;
+        }
+        ObjectStore.writeObject(UID, this);
+    }
+
+    /** Split the content into chunks, adding their IDs to CHUNKUIDS, and return the number
+     *  of bytes in the content. The chunks that are not stored yet are stored if SAVE is
+     *  true. */
+    private long split(ArrayList<String> chunkUIDs, boolean save) {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        Deflater deflater = save ? new Deflater() : null;
+        long total = 0;
+        try (InputStream in = open()) {
+            int start = 0;
+            int end = 0;
+            boolean eof = false;
+            while (true) {
+                // Keep at least one maximal chunk in the buffer until the end of the content
+                if (!eof && end - start < Chunker.MAX_SIZE) {
+                    System.arraycopy(buffer, start, buffer, 0, end - start);
+                    end -= start;
+                    start = 0;
+                    while (!eof && end < buffer.length) {
+                        int n = in.read(buffer, end, buffer.length - end);
+                        if (n < 0) {
+                            eof = true;
+                        } else {
+                            end += n;
+                        }
+                    }
+                }
+                if (start == end) {
+                    break;
+                }
+                int boundary = Chunker.boundary(buffer, start, end);
+                String chunkUID = chunkID(buffer, start, boundary);
+                if (save) {
+                    saveChunk(chunkUID, buffer, start, boundary, deflater);
+                }
+                chunkUIDs.add(chunkUID);
+                total += boundary - start;
+                start = boundary;
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        } finally {
+            if (deflater != null) {
+                deflater.end();
+            }
+        }
+        return total;
+    }
+
+    /** Return the ID of the chunk BUFFER[START..END). */
+    private static String chunkID(byte[] buffer, int start, int end) {
+        MessageDigest md = Codec.digest("chunk", end - start);
+        md.update(buffer, start, end - start);
+        return ObjectStore.toHex(md.digest());
     }
 
+    /** Return the ID of the blob of SIZE bytes split into the chunks with CHUNKUIDS. */
+    private static String hash(long size, ArrayList<String> chunkUIDs) {
+        MessageDigest md = Codec.digest("blob", size);
+        for (String chunkUID : chunkUIDs) {
+            md.update(ObjectStore.fromHex(chunkUID));
+        }
+        return ObjectStore.toHex(md.digest());
+    }
+
+    /** Store BUFFER[START..END) as the chunk with CHUNKUID, compressed if that makes it
+     *  smaller, unless it is stored already. */
+    private static void saveChunk(String chunkUID, byte[] buffer, int start, int end, Deflater deflater) {
+        if (ObjectStore.contains(chunkUID)) {
+            return;
+        }
+
+        deflater.reset();
+        deflater.setInput(buffer, start, end - start);
+        deflater.finish();
+        ByteArrayOutputStream stream = new ByteArrayOutputStream(end - start + 1);
+        stream.write(DEFLATED);
+        byte[] out = new byte[8192];
+        while (!deflater.finished() && stream.size() <= end - start) {
+            int n = deflater.deflate(out);
+            stream.write(out, 0, n);
+        }
+
+        byte[] chunk;
+        if (deflater.finished() && stream.size() <= end - start) {
+            chunk = stream.toByteArray();
+        } else {
+            chunk = new byte[end - start + 1];
+            chunk[0] = STORED;
+            System.arraycopy(buffer, start, chunk, 1, end - start);
+        }
+        ObjectStore.writeBytes(chunkUID, chunk, ObjectIndex.CHUNK);
+    }
+
+    /** Write the content to TARGET, creating or overwriting it as needed. Uncompressed
+     *  chunks are transferred straight from the object files. */
+    public void writeTo(File target) {
+        try (FileChannel out = FileChannel.open(target.toPath(), CREATE, WRITE, TRUNCATE_EXISTING)) {
+            for (String chunkUID : chunks) {
+                if (ObjectStore.readHeader(chunkUID) == STORED) {
+                    ObjectStore.transferTo(chunkUID, 1, out);
+                } else {
+                    ByteBuffer contents = ByteBuffer.wrap(inflateChunk(ObjectStore.readBytes(chunkUID)));
+                    while (contents.hasRemaining()) {
+                        out.write(contents);
+                    }
+                }
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Return the content as a String. */
     public String getContent() {
-        return this.content;
+        return new String(getBytes(), StandardCharsets.UTF_8);
+    }
+
+    /** Return the content. The content read from the chunks is not kept, as this blob may be
+     *  held by the object cache, which only counts its manifest. */
+    public byte[] getBytes() {
+        if (content != null) {
+            return content;
+        }
+        ByteArrayOutputStream stream = new ByteArrayOutputStream((int) size);
+        for (String chunkUID : chunks) {
+            byte[] chunk = ObjectStore.readBytes(chunkUID);
+            if (chunk[0] == STORED) {
+                stream.write(chunk, 1, chunk.length - 1);
+            } else {
+                stream.writeBytes(inflateChunk(chunk));
+            }
+        }
+        return stream.toByteArray();
+    }
+
+    /** Return the number of bytes in the content. */
+    public long getSize() {
+        return size;
+    }
+
+    /** Return the IDs of the chunks of the content, in order. */
+    public ArrayList<String> getChunks() {
+        return chunks;
     }
 
     public String Hash() {
-        return Utils.sha1(this.content);
+        return this.UID;
+    }
+
+    /** Return a stream of the content, read from the file or from memory. */
+    private InputStream open() throws IOException {
+        if (file != null) {
+            return new FileInputStream(file);
+        }
+        return new ByteArrayInputStream(content);
+    }
+
+    /** Return the uncompressed content of the DEFLATED chunk. */
+    private static byte[] inflateChunk(byte[] chunk) {
+        return Codec.inflate(chunk, 1, chunk.length - 1);
     }
 }
@@ -0,0 +1,62 @@
+package gitlet;
+
+import java.io.File;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static gitlet.Utils.*;
+
+/** A batch of changes to working files, planned in full before any is made.
+ *  Deletions are made first. Files the stat cache already knows to hold the right blob are
+ *  then left alone, and the rest are read, decompressed and written in parallel, each one
+ *  skipped if its current content already has the right hash.
+ *  @author Ethan
+ */
+class Checkout {
+    /** The working files to delete. */
+    private final TreeSet<String> deletions = new TreeSet<>();
+    /** The working files to write, mapped to the IDs of their blobs. */
+    private final TreeMap<String, String> writes = new TreeMap<>();
+
+    /** Plan to delete the working file FILENAME. */
+    void delete(String filename) {
+        writes.remove(filename);
+        deletions.add(filename);
+    }
+
+    /** Plan to write the blob with BLOBUID to the working file FILENAME. */
+    void write(String filename, String blobUID) {
+        deletions.remove(filename);
+        writes.put(filename, blobUID);
+    }
+
+    /** Make every planned change. */
+    void run() {
+        for (String filename : deletions) {
+            deleteFile(join(Repository.CWD, filename));
+            StatCache.forget(filename);
+        }
+
+        List<String> pending = writes.keySet().stream()
+            .filter(filename -> !writes.get(filename).equals(StatCache.lookup(filename)))
+            .collect(Collectors.toList());
+        pending.parallelStream().forEach(filename -> materialize(filename, writes.get(filename)));
+        for (String filename : pending) {
+            StatCache.record(filename, writes.get(filename));
+        }
+    }
+
+    /** Write the blob with BLOBUID to the working file FILENAME, unless it already holds it. */
+    private static void materialize(String filename, String blobUID) {
+        File file = join(Repository.CWD, filename);
+        Blob blob = ObjectStore.readObject(blobUID, Blob.class);
+        if (file.isFile() && file.length() == blob.getSize() && new Blob(file).Hash().equals(blobUID)) {
+            return;
+        }
+        File directory = file.getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw error("Cannot create directory %s.", directory.getPath());
+        }
+        blob.writeTo(file);
+    }
+}
@@ -0,0 +1,44 @@
+package gitlet;
+
+import java.util.Random;
+
+/** Content-defined chunking of file contents.
+ *  Boundaries are chosen with a gear rolling hash over the bytes themselves rather than at
+ *  fixed offsets, so an edit only changes the chunks around it, and every other chunk keeps
+ *  its ID and is shared with earlier versions of the file.
+ *  @author Ethan
+ */
+class Chunker {
+    /** No chunk is cut before this many bytes, except at the end of the content. */
+    static final int MIN_SIZE = 2 * 1024;
+    /** Chunks are always cut at this many bytes. */
+    static final int MAX_SIZE = 64 * 1024;
+    /** A boundary is found when the top 13 bits of the hash are zero, so chunks
+     *  average about 8 KB past MIN_SIZE. */
+    private static final long MASK = 0xfff8000000000000L;
+
+    /** One random value per byte value, from a fixed seed so that every gitlet
+     *  process cuts the same content at the same places. */
+    private static final long[] GEAR = new long[256];
+
+    static {
+        Random random = new Random(61);
+        for (int i = 0; i < GEAR.length; i++) {
+            GEAR[i] = random.nextLong();
+        }
+    }
+
+    /** Return the end of the chunk of DATA that starts at START, given that the
+     *  content ends at END. */
+    static int boundary(byte[] data, int start, int end) {
+        int limit = Math.min(end, start + MAX_SIZE);
+        long hash = 0;
+        for (int i = start + MIN_SIZE; i < limit; i++) {
+            hash = (hash << 1) + GEAR[data[i] & 0xff];
+            if ((hash & MASK) == 0) {
+                return i + 1;
+            }
+        }
+        return limit;
+    }
+}
@@ -0,0 +1,44 @@
+package gitlet;
+
+import java.io.*;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+
+/** The client side of Daemon: sends a command to the daemon of the repository in the
+ *  current directory and prints its output.
+ *  @author Ethan
+ */
+class Client {
+    /** Run the command given by ARGS on the daemon, printing its output. Returns false,
+     *  without running anything, if no daemon is listening. */
+    static boolean forward(String[] args) {
+        if (!Daemon.SOCKET_FILE.exists()) {
+            return false;
+        }
+        SocketChannel channel;
+        try {
+            channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+            channel.connect(UnixDomainSocketAddress.of(Daemon.SOCKET_FILE.toPath()));
+        } catch (IOException excp) {
+            // The socket was left behind by a daemon that is gone
+            return false;
+        }
+
+        try (channel) {
+            DataOutputStream out =
+                new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            out.writeInt(args.length);
+            for (String arg : args) {
+                Daemon.writeString(out, arg);
+            }
+            out.flush();
+            Channels.newInputStream(channel).transferTo(System.out);
+            System.out.flush();
+        } catch (IOException excp) {
+            System.out.println("Lost connection to the daemon: " + excp.getMessage());
+        }
+        return true;
+    }
+}
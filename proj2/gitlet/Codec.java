@@ -0,0 +1,274 @@
+package gitlet;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import static gitlet.Utils.*;
+
+/** The compact binary format of gitlet objects, of the staging area and of the stat cache.
+ *  An encoded object starts with a four-byte header: the MAGIC byte, the format VERSION,
+ *  the type of the object and a flags byte. The body that follows is made of varints,
+ *  strings as a varint length followed by UTF-8 bytes, and IDs as raw 20-byte SHA-1 hashes.
+ *  Bodies of more than COMPRESS_THRESHOLD bytes are DEFLATE-compressed when that makes them
+ *  smaller, which is recorded in the flags byte.
+ *
+ *  The magic byte is distinct from the header bytes of stored chunks, so the type of any
+ *  stored object can be told from its first bytes.
+ *
+ *  Object IDs do not depend on this format. As in git, the ID of an object is the SHA-1 of
+ *  a header naming its kind and the length of its content, "<kind> <length>\0", followed by
+ *  that content, so two objects of different kinds never share an ID.
+ *  @author Ethan
+ */
+class Codec {
+    /** The first byte of every encoded object. */
+    static final byte MAGIC = (byte) 0x67;
+    /** The current format version. */
+    static final byte VERSION = 1;
+    /** The type of the encoded staging area. Objects use the types of the object index. */
+    static final byte STAGE = 16;
+    /** The type of the encoded stat cache. */
+    static final byte STAT_CACHE = 17;
+    /** The flag set when the body is DEFLATE-compressed. */
+    private static final byte DEFLATED = 1;
+    /** Bodies up to this many bytes are never compressed: they are mostly raw hashes, and
+     *  the fixed cost of compressing outweighs the few bytes saved. */
+    private static final int COMPRESS_THRESHOLD = 4096;
+    private static final int HEADER_BYTES = 4;
+
+    /** Deflaters and inflaters are costly to create, so each thread reuses its own. */
+    private static final ThreadLocal<Deflater> DEFLATER =
+        ThreadLocal.withInitial(() -> new Deflater(Deflater.BEST_SPEED));
+    private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(Inflater::new);
+
+    /** Return the type of OBJ in the encoded header. */
+    static byte typeOf(Object obj) {
+        if (obj instanceof Commit) {
+            return ObjectIndex.COMMIT;
+        } else if (obj instanceof Blob) {
+            return ObjectIndex.BLOB;
+        } else if (obj instanceof Tree) {
+            return ObjectIndex.TREE;
+        } else if (obj instanceof Stage) {
+            return STAGE;
+        }
+        throw new IllegalArgumentException("cannot encode " + obj.getClass().getName());
+    }
+
+    /** Return the type recorded in the header of the encoded CONTENTS, or 0 if CONTENTS
+     *  was not produced by this codec. */
+    static byte typeOf(byte[] contents) {
+        if (contents.length < HEADER_BYTES || contents[0] != MAGIC) {
+            return 0;
+        }
+        return contents[2];
+    }
+
+    /** Return a SHA-1 digest that has been given the header of an object of the given KIND
+     *  whose hashed content is LENGTH bytes long, ready for that content. */
+    static MessageDigest digest(String kind, long length) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-1");
+            md.update((kind + " " + length + "\0").getBytes(StandardCharsets.UTF_8));
+            return md;
+        } catch (NoSuchAlgorithmException excp) {
+            throw new IllegalArgumentException("System does not support SHA-1");
+        }
+    }
+
+    /** Return the ID of the object of the given KIND whose hashed content is CONTENT. */
+    static String hash(String kind, byte[] content) {
+        MessageDigest md = digest(kind, content.length);
+        md.update(content);
+        return ObjectStore.toHex(md.digest());
+    }
+
+    /** Return OBJ in the compact binary format. */
+    static byte[] encode(Object obj) {
+        Encoder body = new Encoder();
+        if (obj instanceof Commit) {
+            ((Commit) obj).encode(body);
+        } else if (obj instanceof Blob) {
+            ((Blob) obj).encode(body);
+        } else if (obj instanceof Tree) {
+            ((Tree) obj).encode(body);
+        } else {
+            ((Stage) obj).encode(body);
+        }
+        return encode(typeOf(obj), body);
+    }
+
+    /** Return the fields written to BODY in the compact binary format, under a header of
+     *  the given TYPE. */
+    static byte[] encode(byte type, Encoder body) {
+        byte flags = 0;
+        byte[] contents = body.toByteArray();
+        if (contents.length > COMPRESS_THRESHOLD) {
+            byte[] compressed = deflate(contents);
+            if (compressed.length < contents.length) {
+                contents = compressed;
+                flags |= DEFLATED;
+            }
+        }
+        byte[] result = new byte[HEADER_BYTES + contents.length];
+        result[0] = MAGIC;
+        result[1] = VERSION;
+        result[2] = type;
+        result[3] = flags;
+        System.arraycopy(contents, 0, result, HEADER_BYTES, contents.length);
+        return result;
+    }
+
+    /** Return the object encoded in CONTENTS, casting it to EXPECTEDCLASS. */
+    static <T> T decode(byte[] contents, Class<T> expectedClass) {
+        byte type = typeOf(contents);
+        Decoder in = decoder(contents);
+        Object result;
+        switch (type) {
+            case ObjectIndex.COMMIT -> result = Commit.decode(in);
+            case ObjectIndex.BLOB -> result = Blob.decode(in);
+            case ObjectIndex.TREE -> result = Tree.decode(in);
+            case STAGE -> result = Stage.decode(in);
+            default -> throw new IllegalArgumentException("unknown object type " + type);
+        }
+        try {
+            return expectedClass.cast(result);
+        } catch (ClassCastException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Return a decoder of the fields of CONTENTS, in the compact binary format. */
+    static Decoder decoder(byte[] contents) {
+        if (typeOf(contents) == 0) {
+            throw new IllegalArgumentException("not an encoded gitlet object");
+        }
+        if (contents[1] > VERSION) {
+            throw error("Unsupported object format version %d.", contents[1]);
+        }
+        if ((contents[3] & DEFLATED) != 0) {
+            return new Decoder(inflate(contents, HEADER_BYTES, contents.length - HEADER_BYTES));
+        }
+        return new Decoder(Arrays.copyOfRange(contents, HEADER_BYTES, contents.length));
+    }
+
+    /** Writes the fields of an object body. */
+    static class Encoder {
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        /** Write the non-negative VALUE in as few bytes as it needs, 7 bits per byte. */
+        void writeVarint(long value) {
+            while ((value & ~0x7fL) != 0) {
+                out.write((int) ((value & 0x7f) | 0x80));
+                value >>>= 7;
+            }
+            out.write((int) value);
+        }
+
+        void writeString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(bytes.length);
+            out.writeBytes(bytes);
+        }
+
+        /** Write BYTES as they are, without their length. */
+        void writeBytes(byte[] bytes) {
+            out.writeBytes(bytes);
+        }
+
+        /** Write the 40-digit hexadecimal UID as 20 raw bytes. */
+        void writeHash(String UID) {
+            out.writeBytes(ObjectStore.fromHex(UID));
+        }
+
+        byte[] toByteArray() {
+            return out.toByteArray();
+        }
+    }
+
+    /** Reads the fields of an object body in the order they were written. */
+    static class Decoder {
+        private final byte[] contents;
+        private int position;
+
+        Decoder(byte[] contents) {
+            this.contents = contents;
+        }
+
+        long readVarint() {
+            long value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = contents[position++];
+                value |= (long) (b & 0x7f) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+        }
+
+        int readCount() {
+            return (int) readVarint();
+        }
+
+        String readString() {
+            int length = readCount();
+            String value = new String(contents, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        byte[] readBytes(int length) {
+            byte[] bytes = Arrays.copyOfRange(contents, position, position + length);
+            position += length;
+            return bytes;
+        }
+
+        String readHash() {
+            byte[] ID = new byte[ObjectStore.ID_BYTES];
+            System.arraycopy(contents, position, ID, 0, ID.length);
+            position += ID.length;
+            return ObjectStore.toHex(ID);
+        }
+    }
+
+    private static byte[] deflate(byte[] contents) {
+        Deflater deflater = DEFLATER.get();
+        deflater.reset();
+        deflater.setInput(contents);
+        deflater.finish();
+        ByteArrayOutputStream stream = new ByteArrayOutputStream(contents.length);
+        byte[] out = new byte[8192];
+        while (!deflater.finished()) {
+            stream.write(out, 0, deflater.deflate(out));
+        }
+        return stream.toByteArray();
+    }
+
+    /** Return the uncompressed form of the LENGTH bytes of DEFLATE-compressed CONTENTS
+     *  that start at OFFSET. */
+    static byte[] inflate(byte[] contents, int offset, int length) {
+        Inflater inflater = INFLATER.get();
+        inflater.reset();
+        try {
+            inflater.setInput(contents, offset, length);
+            ByteArrayOutputStream stream = new ByteArrayOutputStream(length * 4);
+            byte[] out = new byte[8192];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(out);
+                if (n == 0 && inflater.needsInput()) {
+                    throw new IllegalArgumentException("truncated compressed data");
+                }
+                stream.write(out, 0, n);
+            }
+            return stream.toByteArray();
+        } catch (DataFormatException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+}
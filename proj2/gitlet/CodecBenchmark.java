@@ -0,0 +1,81 @@
+package gitlet;
+
+import java.io.Serializable;
+import java.util.*;
+
+/** Compares Java serialization with the compact binary format of Codec on typical gitlet
+ *  objects: the encoded size of each object and the time to encode and decode it.
+ *  Run it with an optional number of rounds, e.g. java gitlet.CodecBenchmark 200000.
+ *  @author Ethan
+ */
+public class CodecBenchmark {
+    private static final int DEFAULT_ROUNDS = 100000;
+
+    public static void main(String[] args) {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ROUNDS;
+        Random random = new Random(61);
+
+        TreeMap<String, String> entries = new TreeMap<>();
+        for (int i = 0; i < 32; i++) {
+            entries.put("file" + i + ".txt", randomID(random));
+        }
+        entries.put("src/", randomID(random));
+        Tree tree = new Tree(entries);
+
+        Commit commit = new Commit("Add the files of the benchmark",
+                                   new ArrayList<>(List.of(randomID(random))), tree.Hash());
+
+        Stage stage = new Stage();
+        for (int i = 0; i < 16; i++) {
+            stage.addAddition("staged" + i + ".txt", randomID(random));
+        }
+        stage.addRemoval("removed.txt");
+
+        System.out.printf("%-8s %12s %12s %14s %14s %14s %14s%n", "object", "java bytes", "codec bytes",
+                          "java enc ns", "codec enc ns", "java dec ns", "codec dec ns");
+        run("commit", commit, Commit.class, rounds);
+        run("stage", stage, Stage.class, rounds);
+    }
+
+    /** Time ROUNDS encodings and decodings of OBJ in both formats and print the results. */
+    private static <T extends Serializable> void run(String name, T obj, Class<T> cls, int rounds) {
+        byte[] serialized = Utils.serialize(obj);
+        byte[] encoded = Codec.encode(obj);
+        // Warm up both paths before timing them
+        for (int i = 0; i < rounds / 10; i++) {
+            Utils.deserialize(Utils.serialize(obj), cls);
+            Codec.decode(Codec.encode(obj), cls);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            serialized = Utils.serialize(obj);
+        }
+        long javaEncode = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            encoded = Codec.encode(obj);
+        }
+        long codecEncode = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            Utils.deserialize(serialized, cls);
+        }
+        long javaDecode = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            Codec.decode(encoded, cls);
+        }
+        long codecDecode = System.nanoTime() - start;
+
+        System.out.printf("%-8s %12d %12d %14.1f %14.1f %14.1f %14.1f%n", name, serialized.length,
+                          encoded.length, (double) javaEncode / rounds, (double) codecEncode / rounds,
+                          (double) javaDecode / rounds, (double) codecDecode / rounds);
+    }
+
+    private static String randomID(Random random) {
+        byte[] ID = new byte[ObjectStore.ID_BYTES];
+        random.nextBytes(ID);
+        return ObjectStore.toHex(ID);
+    }
+}
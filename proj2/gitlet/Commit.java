@@ -1,12 +1,15 @@
 package gitlet;
 
 import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
 import java.util.*;
 
 /** Represents a gitlet commit object.
  *  This object store all the information in Commit.
  *  The tree structure serve as the snapshot of the current tracked file when commit.
+ *  Only the ID of the root tree is kept in the commit, so unchanged directories are shared
+ *  with other commits instead of being stored again.
  *  @author Ethan
  */
 public class Commit implements Serializable {
@@ -22,10 +25,11 @@ public class Commit implements Serializable {
     private String message;
     private ArrayList<String> parent;
     private String timestamp;
-    private TreeMap<String, String> tree;
+    /** The ID of the root tree of the snapshot. */
+    private String tree;
 
     /* TODO: fill in the rest of this class. */
-    public Commit(String message, ArrayList<String> parent, TreeMap<String, String> tree) {
+    public Commit(String message, ArrayList<String> parent, String tree) {
         this.message = message;
         this.parent = parent;
         this.tree = tree;
@@ -39,6 +43,41 @@ public class Commit implements Serializable {
         }
     }
 
+    private Commit(String message, ArrayList<String> parent, String timestamp, String tree) {
+        this.message = message;
+        this.parent = parent;
+        this.timestamp = timestamp;
+        this.tree = tree;
+    }
+
+    /** Write the fields of this commit to OUT in the compact binary format. */
+    void encode(Codec.Encoder out) {
+        out.writeString(message);
+        out.writeString(timestamp);
+        // The initial commit has a single empty parent ID, which is written as no parents
+        List<String> parents = parent.get(0).isEmpty() ? List.of() : parent;
+        out.writeVarint(parents.size());
+        for (String p : parents) {
+            out.writeHash(p);
+        }
+        out.writeHash(tree);
+    }
+
+    /** Return the commit whose fields are read from IN. */
+    static Commit decode(Codec.Decoder in) {
+        String message = in.readString();
+        String timestamp = in.readString();
+        int count = in.readCount();
+        ArrayList<String> parent = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            parent.add(in.readHash());
+        }
+        if (parent.isEmpty()) {
+            parent.add("");
+        }
+        return new Commit(message, parent, timestamp, in.readHash());
+    }
+
     public String getMessage() {
         return this.message;
     }
@@ -51,7 +90,7 @@ public class Commit implements Serializable {
         return timestamp;
     }
 
-    public TreeMap<String, String> getTree() {
+    public String getTreeID() {
         return tree;
     }
 
@@ -59,19 +98,17 @@ public class Commit implements Serializable {
         return parent.size() > 1;
     }
 
+    /** Return the ID of this commit: the hash, framed as described in Codec, of its tree,
+     *  parents and timestamp on lines of their own, followed by a blank line and the message. */
     public String Hash() {
-        List<Object> list = new ArrayList<>();
-        list.add(message);
-        list.add(timestamp);
-        list.addAll(parent);
-
-        for (Map.Entry<String, String> entry : tree.entrySet()) {
-            String filename = entry.getKey();
-            String blobUID = entry.getValue();
-            list.add(filename);
-            list.add(blobUID);
+        StringBuilder content = new StringBuilder();
+        content.append("tree ").append(tree).append('\n');
+        for (String p : parent) {
+            if (!p.isEmpty()) {
+                content.append("parent ").append(p).append('\n');
+            }
         }
-
-        return Utils.sha1(list);
+        content.append("date ").append(timestamp).append("\n\n").append(message);
+        return Codec.hash("commit", content.toString().getBytes(StandardCharsets.UTF_8));
     }
 }
@@ -0,0 +1,414 @@
+package gitlet;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.Consumer;
+
+import static gitlet.Utils.*;
+
+/** A catalog of every commit in the repository, so that global-log and find never read
+ *  commit objects.
+ *
+ *  The catalog file is an append-only log with one record per commit: a 4-byte length
+ *  followed by the commit ID, its parents, its timestamp and its message in the format of
+ *  Codec. Messages are indexed by their trigrams, the 3-byte windows of their UTF-8 bytes, in
+ *  a separate sorted file that covers a prefix of the catalog. Records appended since the
+ *  index was built are scanned directly, and once there are more than TAIL_LIMIT of them the
+ *  index is rebuilt.
+ *
+ *  A crash while appending may leave part of a record at the end of the catalog. Reading
+ *  stops at the last whole record, and the next append, which holds a lock of the catalog,
+ *  drops the partial one first.
+ *
+ *  The index file holds the number N of records it covers, the number T of distinct
+ *  trigrams, the N record offsets, the T sorted trigrams, T + 1 start positions into the
+ *  posting list, and the posting list itself: for each trigram, the sorted numbers of the
+ *  records whose message contains it.
+ *  @author Ethan
+ */
+public class CommitCatalog {
+    /** The log of every commit. */
+    public static final File CATALOG_FILE = join(Repository.GITLET_DIR, "catalog");
+    /** The trigram index of the commit messages. */
+    public static final File INDEX_FILE = join(Repository.GITLET_DIR, "catalog-index");
+
+    /** The number of records beyond the index that triggers a rebuild of the index. */
+    private static final int TAIL_LIMIT = 1024;
+    private static final int HEADER_BYTES = 8;
+
+    /** A single commit of the catalog. */
+    public static class Entry {
+        private final String commitID;
+        private final List<String> parents;
+        private final String timestamp;
+        private final String message;
+
+        Entry(String commitID, List<String> parents, String timestamp, String message) {
+            this.commitID = commitID;
+            this.parents = parents;
+            this.timestamp = timestamp;
+            this.message = message;
+        }
+
+        public String getCommitID() {
+            return commitID;
+        }
+
+        public List<String> getParents() {
+            return parents;
+        }
+
+        public String getTimestamp() {
+            return timestamp;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+
+    /** Create an empty catalog for a newly initialized repository. */
+    public static void init() {
+        writeContents(CATALOG_FILE, new byte[0]);
+        writeIndex(new ArrayList<>(), new ArrayList<>());
+    }
+
+    /** Append the commit COMMIT with the given ID to the catalog. The commit must already
+     *  be stored, so that it is included if the catalog has to be created first. */
+    public static void add(String commitID, Commit commit) {
+        if (CATALOG_FILE.exists()) {
+            append(commitID, commit);
+        } else {
+            ensureCatalog();
+        }
+    }
+
+    /** Drop the commits with the given IDS from the catalog and rebuild its index. */
+    public static void remove(Set<String> IDs) {
+        ensureCatalog();
+        File temp = join(Repository.GITLET_DIR, CATALOG_FILE.getName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temp)))) {
+            scan(entry -> {
+                if (IDs.contains(entry.getCommitID())) {
+                    return;
+                }
+                byte[] record = encode(entry);
+                try {
+                    out.writeInt(record.length);
+                    out.write(record);
+                } catch (IOException excp) {
+                    throw error("Cannot write commit catalog: %s", excp.getMessage());
+                }
+            });
+        } catch (IOException excp) {
+            throw error("Cannot write commit catalog: %s", excp.getMessage());
+        }
+        if (!temp.renameTo(CATALOG_FILE)) {
+            throw error("Cannot write commit catalog.");
+        }
+        rebuildIndex();
+    }
+
+    /** Return the IDs of every commit in the catalog. */
+    public static Set<String> commitIDs() {
+        Set<String> IDs = new HashSet<>();
+        forEach(entry -> IDs.add(entry.getCommitID()));
+        return IDs;
+    }
+
+    /** Replace the catalog and its index with ones built from the commits in the object
+     *  index. */
+    public static void rebuild() {
+        CATALOG_FILE.delete();
+        INDEX_FILE.delete();
+        ensureCatalog();
+    }
+
+    /** Call ACTION on every commit of the catalog, in the order they were added. */
+    public static void forEach(Consumer<Entry> action) {
+        ensureCatalog();
+        scan(action);
+    }
+
+    private static void scan(Consumer<Entry> action) {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(CATALOG_FILE)))) {
+            long remaining = CATALOG_FILE.length();
+            while (remaining >= 4) {
+                int length = in.readInt();
+                if (length < 0 || length > remaining - 4) {
+                    break;
+                }
+                byte[] record = new byte[length];
+                in.readFully(record);
+                action.accept(decode(record));
+                remaining -= 4 + record.length;
+            }
+        } catch (IOException excp) {
+            throw error("Cannot read commit catalog: %s", excp.getMessage());
+        }
+    }
+
+    /** Return the IDs of the commits whose message contains QUERY, sorted. */
+    public static List<String> find(String query) {
+        ensureCatalog();
+        byte[] pattern = query.getBytes(StandardCharsets.UTF_8);
+        TreeSet<String> result = new TreeSet<>();
+        if (pattern.length < 3) {
+            // Too short to have a trigram, so every message has to be checked
+            scan(entry -> {
+                if (entry.getMessage().contains(query)) {
+                    result.add(entry.getCommitID());
+                }
+            });
+            return new ArrayList<>(result);
+        }
+
+        try (RandomAccessFile catalog = new RandomAccessFile(CATALOG_FILE, "r")) {
+            MappedByteBuffer index = mapIndex();
+            long end = indexedEnd(index, catalog);
+            for (int n : candidates(index, trigrams(pattern))) {
+                catalog.seek(index.getLong(HEADER_BYTES + 8 * n));
+                Entry entry = readRecord(catalog);
+                if (entry.getMessage().contains(query)) {
+                    result.add(entry.getCommitID());
+                }
+            }
+
+            // Check the records added since the index was built
+            int tail = 0;
+            catalog.seek(end);
+            for (Entry entry = readRecord(catalog); entry != null; entry = readRecord(catalog)) {
+                if (entry.getMessage().contains(query)) {
+                    result.add(entry.getCommitID());
+                }
+                tail += 1;
+            }
+            if (tail > TAIL_LIMIT) {
+                rebuildIndex();
+            }
+        } catch (IOException excp) {
+            throw error("Cannot read commit catalog: %s", excp.getMessage());
+        }
+        return new ArrayList<>(result);
+    }
+
+    /** Map the index file. */
+    private static MappedByteBuffer mapIndex() throws IOException {
+        try (FileChannel channel = FileChannel.open(INDEX_FILE.toPath())) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    /** Return the position in CATALOG just past the last record covered by INDEX. */
+    private static long indexedEnd(MappedByteBuffer index, RandomAccessFile catalog) throws IOException {
+        int covered = index.getInt(0);
+        if (covered == 0) {
+            return 0;
+        }
+        long last = index.getLong(HEADER_BYTES + 8 * (covered - 1));
+        catalog.seek(last);
+        return last + 4 + catalog.readInt();
+    }
+
+    /** Return the sorted numbers of the indexed records whose message contains every one
+     *  of TRIGRAMS. */
+    private static int[] candidates(MappedByteBuffer index, int[] trigrams) {
+        int covered = index.getInt(0);
+        int count = index.getInt(4);
+        int keys = HEADER_BYTES + 8 * covered;
+        int starts = keys + 4 * count;
+        int postings = starts + 4 * (count + 1);
+
+        int[] result = null;
+        for (int trigram : trigrams) {
+            int lo = 0;
+            int hi = count - 1;
+            int found = -1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int key = index.getInt(keys + 4 * mid);
+                if (key < trigram) {
+                    lo = mid + 1;
+                } else if (key > trigram) {
+                    hi = mid - 1;
+                } else {
+                    found = mid;
+                    break;
+                }
+            }
+            if (found < 0) {
+                return new int[0];
+            }
+            int from = index.getInt(starts + 4 * found);
+            int to = index.getInt(starts + 4 * (found + 1));
+            int[] list = new int[to - from];
+            for (int i = 0; i < list.length; i++) {
+                list[i] = index.getInt(postings + 4 * (from + i));
+            }
+            result = result == null ? list : intersect(result, list);
+            if (result.length == 0) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    /** Return the numbers present in both of the sorted arrays A and B. */
+    private static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int n = 0;
+        for (int i = 0, j = 0; i < a.length && j < b.length; ) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    /** Return the distinct trigrams of BYTES, sorted. */
+    private static int[] trigrams(byte[] bytes) {
+        TreeSet<Integer> result = new TreeSet<>();
+        for (int i = 0; i + 3 <= bytes.length; i++) {
+            result.add((bytes[i] & 0xff) << 16 | (bytes[i + 1] & 0xff) << 8 | (bytes[i + 2] & 0xff));
+        }
+        return result.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /** Build the index over every record of the catalog. */
+    private static void rebuildIndex() {
+        List<Long> offsets = new ArrayList<>();
+        List<int[]> messageTrigrams = new ArrayList<>();
+        long[] offset = {0};
+        scan(entry -> {
+            byte[] message = entry.getMessage().getBytes(StandardCharsets.UTF_8);
+            offsets.add(offset[0]);
+            messageTrigrams.add(trigrams(message));
+            offset[0] += 4 + encode(entry).length;
+        });
+        writeIndex(offsets, messageTrigrams);
+    }
+
+    /** Write the index of the records at OFFSETS, whose messages have MESSAGETRIGRAMS. */
+    private static void writeIndex(List<Long> offsets, List<int[]> messageTrigrams) {
+        TreeMap<Integer, List<Integer>> postings = new TreeMap<>();
+        int total = 0;
+        for (int n = 0; n < messageTrigrams.size(); n++) {
+            for (int trigram : messageTrigrams.get(n)) {
+                postings.computeIfAbsent(trigram, k -> new ArrayList<>()).add(n);
+                total += 1;
+            }
+        }
+
+        ByteBuffer index = ByteBuffer.allocate(HEADER_BYTES + 8 * offsets.size()
+                                               + 8 * postings.size() + 4 + 4 * total);
+        index.putInt(offsets.size()).putInt(postings.size());
+        offsets.forEach(index::putLong);
+        postings.keySet().forEach(index::putInt);
+        int start = 0;
+        for (List<Integer> list : postings.values()) {
+            index.putInt(start);
+            start += list.size();
+        }
+        index.putInt(start);
+        postings.values().forEach(list -> list.forEach(index::putInt));
+
+        File temp = join(Repository.GITLET_DIR, INDEX_FILE.getName() + ".tmp");
+        writeContents(temp, (Object) index.array());
+        if (!temp.renameTo(INDEX_FILE)) {
+            throw error("Cannot write commit catalog index.");
+        }
+    }
+
+    /** Create the catalog from the commits in the object store for repositories that
+     *  predate it. */
+    private static void ensureCatalog() {
+        if (CATALOG_FILE.exists()) {
+            if (!INDEX_FILE.exists()) {
+                rebuildIndex();
+            }
+            return;
+        }
+        writeContents(CATALOG_FILE, new byte[0]);
+        for (String commitID : ObjectIndex.objectIDs(ObjectIndex.COMMIT)) {
+            append(commitID, ObjectStore.readObject(commitID, Commit.class));
+        }
+        rebuildIndex();
+    }
+
+    private static void append(String commitID, Commit commit) {
+        byte[] record = encode(new Entry(commitID, commit.getParent(), commit.getTimestamp(),
+                                         commit.getMessage()));
+        try (RandomAccessFile catalog = new RandomAccessFile(CATALOG_FILE, "rw")) {
+            // The lock is released when the catalog is closed
+            catalog.getChannel().lock();
+            long end = INDEX_FILE.exists() ? indexedEnd(mapIndex(), catalog) : 0;
+            catalog.seek(end);
+            while (readRecord(catalog) != null) {
+                end = catalog.getFilePointer();
+            }
+            catalog.setLength(end);
+            catalog.seek(end);
+            ByteBuffer buffer = ByteBuffer.allocate(4 + record.length).putInt(record.length).put(record);
+            catalog.write(buffer.array());
+        } catch (IOException excp) {
+            throw error("Cannot write commit catalog: %s", excp.getMessage());
+        }
+        Journal.written(CATALOG_FILE);
+    }
+
+    private static byte[] encode(Entry entry) {
+        Codec.Encoder out = new Codec.Encoder();
+        out.writeHash(entry.commitID);
+        // The initial commit has a single empty parent ID, which is written as no parents
+        List<String> parents = entry.parents.get(0).isEmpty() ? List.of() : entry.parents;
+        out.writeVarint(parents.size());
+        for (String p : parents) {
+            out.writeHash(p);
+        }
+        out.writeString(entry.timestamp);
+        out.writeString(entry.message);
+        return out.toByteArray();
+    }
+
+    private static Entry decode(byte[] record) {
+        Codec.Decoder in = new Codec.Decoder(record);
+        String commitID = in.readHash();
+        int count = in.readCount();
+        List<String> parents = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            parents.add(in.readHash());
+        }
+        if (parents.isEmpty()) {
+            parents.add("");
+        }
+        return new Entry(commitID, parents, in.readString(), in.readString());
+    }
+
+    /** Return the record at the position of CATALOG, or null if the catalog ends before
+     *  the record does. */
+    private static Entry readRecord(RandomAccessFile catalog) throws IOException {
+        long remaining = catalog.length() - catalog.getFilePointer();
+        if (remaining < 4) {
+            return null;
+        }
+        int length = catalog.readInt();
+        if (length < 0 || length > remaining - 4) {
+            return null;
+        }
+        byte[] record = new byte[length];
+        catalog.readFully(record);
+        return decode(record);
+    }
+}
@@ -0,0 +1,374 @@
+package gitlet;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.*;
+
+import static gitlet.Utils.*;
+import static java.nio.file.StandardOpenOption.*;
+
+/** A persistent cache of the shape of the commit history.
+ *  Every commit is given a position, and the graph stores for each position the raw commit
+ *  ID, the positions of its parents and its generation number: 1 for the initial commit and
+ *  one more than the largest generation of its parents otherwise. Ancestry questions are then
+ *  answered on int arrays, without reading any Commit object.
+ *
+ *  The graph file is an append-only sequence of fixed-size records, one per commit in the
+ *  order the commits were added, so a parent always comes before its children. In memory,
+ *  positions are found by ID through an open-addressing table of ints next to the arrays.
+ *
+ *  Positions are record numbers, so a process appends under a lock of the graph file, after
+ *  reading the records other processes appended since it loaded the graph, and drops a
+ *  partial record left at the end by a crash rather than writing after it.
+ *  @author Ethan
+ */
+public class CommitGraph {
+    /** The file which stores the commit graph. */
+    public static final File GRAPH_FILE = join(Repository.GITLET_DIR, "commit-graph");
+
+    /** The position standing for a missing parent. */
+    public static final int NONE = -1;
+
+    private static final int RECORD_BYTES = ObjectStore.ID_BYTES + 3 * 4;
+
+    /** Flags used while painting the history in mergeBase. */
+    private static final byte FROM_FIRST = 1;
+    private static final byte FROM_SECOND = 2;
+    private static final byte STALE = 4;
+
+    /** The raw IDs of the commits, ID_BYTES per position. */
+    private static byte[] IDs;
+    private static int[] parent1;
+    private static int[] parent2;
+    private static int[] generation;
+    /** The position plus one of each commit, at the slot given by the leading bytes of its
+     *  ID or the first free slot after it, and 0 in free slots. The table is kept at most
+     *  half full. */
+    private static int[] slots;
+    /** The number of commits in the graph, or -1 until the graph is loaded. */
+    private static int size = -1;
+
+    /** Create an empty graph for a newly initialized repository. */
+    public static void init() {
+        writeContents(GRAPH_FILE, new byte[0]);
+    }
+
+    /** Return the number of commits in the graph. */
+    public static int size() {
+        load();
+        return size;
+    }
+
+    /** Return true if the commit with the given ID is in the graph. */
+    public static boolean contains(String commitID) {
+        load();
+        return find(commitID) != NONE;
+    }
+
+    /** Drop the loaded graph, so the graph file is read again when it is next needed. */
+    public static void unload() {
+        size = -1;
+    }
+
+    /** Replace the graph with one built from the commits in the object index. */
+    public static void rebuild() {
+        GRAPH_FILE.delete();
+        size = -1;
+        load();
+    }
+
+    /** Return the position of the commit with the given ID, adding it and any missing
+     *  ancestors to the graph if needed. */
+    public static int positionOf(String commitID) {
+        load();
+        int i = find(commitID);
+        return i != NONE ? i : addWithAncestors(commitID);
+    }
+
+    /** Return the ID of the commit at position I. */
+    public static String commitID(int i) {
+        return ObjectStore.toHex(Arrays.copyOfRange(IDs, i * ObjectStore.ID_BYTES,
+                                                    (i + 1) * ObjectStore.ID_BYTES));
+    }
+
+    /** Return the position of the first parent of the commit at position I, or NONE. */
+    public static int firstParent(int i) {
+        return parent1[i];
+    }
+
+    /** Return the position of the second parent of the commit at position I, or NONE. */
+    public static int secondParent(int i) {
+        return parent2[i];
+    }
+
+    /** Return the generation number of the commit at position I. */
+    public static int generation(int i) {
+        return generation[i];
+    }
+
+    /** Record a new commit with the given ID and PARENTS, whose IDs are empty for the
+     *  initial commit. Every parent must already be in the graph. */
+    public static void add(String commitID, List<String> parents) {
+        load();
+        if (find(commitID) != NONE) {
+            return;
+        }
+        int p1 = parents.isEmpty() || parents.get(0).isEmpty() ? NONE : positionOf(parents.get(0));
+        int p2 = parents.size() > 1 ? positionOf(parents.get(1)) : NONE;
+        try (FileChannel graph = FileChannel.open(GRAPH_FILE.toPath(), CREATE, READ, WRITE)) {
+            // The lock is released when the channel is closed
+            graph.lock();
+            long whole = graph.size() - graph.size() % RECORD_BYTES;
+            catchUp(graph, whole);
+            if (find(commitID) != NONE) {
+                return;
+            }
+            int i = append(ObjectStore.fromHex(commitID), p1, p2);
+
+            ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES);
+            record.put(IDs, i * ObjectStore.ID_BYTES, ObjectStore.ID_BYTES);
+            record.putInt(p1).putInt(p2).putInt(generation[i]).flip();
+            graph.truncate(whole);
+            graph.position(whole);
+            while (record.hasRemaining()) {
+                graph.write(record);
+            }
+        } catch (IOException excp) {
+            throw error("Cannot write commit graph: %s", excp.getMessage());
+        }
+        Journal.written(GRAPH_FILE);
+    }
+
+    /** Return true if the commit with ID ANCESTOR is reachable from the commit with ID
+     *  DESCENDANT, counting a commit as its own ancestor. */
+    public static boolean isAncestor(String ancestor, String descendant) {
+        int target = positionOf(ancestor);
+        int start = positionOf(descendant);
+        // Commits with a smaller generation than the target cannot lead to it
+        boolean[] visited = new boolean[size];
+        Deque<Integer> stack = new ArrayDeque<>(List.of(start));
+        while (!stack.isEmpty()) {
+            int c = stack.pop();
+            if (c == target) {
+                return true;
+            }
+            if (visited[c] || generation[c] <= generation[target]) {
+                continue;
+            }
+            visited[c] = true;
+            if (parent1[c] != NONE) {
+                stack.push(parent1[c]);
+            }
+            if (parent2[c] != NONE) {
+                stack.push(parent2[c]);
+            }
+        }
+        return false;
+    }
+
+    /** Return the ID of a latest common ancestor of the commits with IDs FIRST and SECOND,
+     *  or null if they have none. Commits are visited from the highest generation down,
+     *  marking which of the two each is reachable from, and the walk stops as soon as every
+     *  queued commit is below a common ancestor already found. */
+    public static String mergeBase(String first, String second) {
+        int a = positionOf(first);
+        int b = positionOf(second);
+        if (a == b) {
+            return first;
+        }
+        byte[] flags = new byte[size];
+        // The number of queued entries for each commit, and of entries whose commit is not stale
+        int[] queued = new int[size];
+        int active = 2;
+        PriorityQueue<Integer> queue =
+            new PriorityQueue<>((x, y) -> Integer.compare(generation[y], generation[x]));
+        flags[a] = FROM_FIRST;
+        flags[b] = FROM_SECOND;
+        queue.add(a);
+        queue.add(b);
+        queued[a] = queued[b] = 1;
+        int result = NONE;
+
+        while (active > 0) {
+            int c = queue.poll();
+            queued[c] -= 1;
+            byte f = flags[c];
+            if ((f & STALE) == 0) {
+                active -= 1;
+                if (f == (FROM_FIRST | FROM_SECOND)) {
+                    if (result == NONE) {
+                        result = c;
+                    }
+                    // Everything below a common ancestor is an older common ancestor
+                    f |= STALE;
+                    flags[c] = f;
+                    active -= queued[c];
+                }
+            }
+            for (int p : new int[] {parent1[c], parent2[c]}) {
+                if (p == NONE || (flags[p] & f) == f) {
+                    continue;
+                }
+                if ((flags[p] & STALE) == 0 && (f & STALE) != 0) {
+                    active -= queued[p];
+                }
+                flags[p] |= f;
+                queue.add(p);
+                queued[p] += 1;
+                if ((flags[p] & STALE) == 0) {
+                    active += 1;
+                }
+            }
+        }
+        return result == NONE ? null : commitID(result);
+    }
+
+    /** Add the commit with the given ID to the graph, first adding any of its ancestors
+     *  that are missing, and return its position. */
+    private static int addWithAncestors(String commitID) {
+        Deque<String> stack = new ArrayDeque<>(List.of(commitID));
+        while (!stack.isEmpty()) {
+            String c = stack.peek();
+            List<String> missing = new ArrayList<>();
+            List<String> parents = ObjectStore.readObject(c, Commit.class).getParent();
+            for (String p : parents) {
+                if (!p.isEmpty() && find(p) == NONE) {
+                    missing.add(p);
+                }
+            }
+            if (missing.isEmpty()) {
+                stack.pop();
+                if (find(c) == NONE) {
+                    add(c, parents);
+                }
+            } else {
+                missing.forEach(stack::push);
+            }
+        }
+        return size - 1;
+    }
+
+    /** Return the position of the commit with the given ID, or NONE if it is not in the graph. */
+    private static int find(String commitID) {
+        byte[] target = ObjectStore.fromHex(commitID);
+        int mask = slots.length - 1;
+        for (int s = slotOf(target, 0) & mask; slots[s] != 0; s = (s + 1) & mask) {
+            int i = slots[s] - 1;
+            if (Arrays.equals(IDs, i * ObjectStore.ID_BYTES, (i + 1) * ObjectStore.ID_BYTES,
+                              target, 0, ObjectStore.ID_BYTES)) {
+                return i;
+            }
+        }
+        return NONE;
+    }
+
+    /** Return the home slot of the raw ID at OFFSET in ID, before masking. IDs are SHA-1
+     *  hashes, so their leading bytes are already evenly spread. */
+    private static int slotOf(byte[] ID, int offset) {
+        return ByteBuffer.wrap(ID, offset, 4).getInt();
+    }
+
+    /** Rebuild the table of positions with CAPACITY slots, a power of two. */
+    private static void reindex(int capacity) {
+        slots = new int[capacity];
+        for (int i = 0; i < size; i++) {
+            insert(i);
+        }
+    }
+
+    /** Enter the commit at position I in the table of positions. */
+    private static void insert(int i) {
+        int mask = slots.length - 1;
+        int s = slotOf(IDs, i * ObjectStore.ID_BYTES) & mask;
+        while (slots[s] != 0) {
+            s = (s + 1) & mask;
+        }
+        slots[s] = i + 1;
+    }
+
+    /** Append a commit with raw ID and parent positions P1 and P2 to the in-memory graph,
+     *  and return its position. */
+    private static int append(byte[] ID, int p1, int p2) {
+        if (size == parent1.length) {
+            int capacity = Math.max(16, size * 2);
+            IDs = Arrays.copyOf(IDs, capacity * ObjectStore.ID_BYTES);
+            parent1 = Arrays.copyOf(parent1, capacity);
+            parent2 = Arrays.copyOf(parent2, capacity);
+            generation = Arrays.copyOf(generation, capacity);
+        }
+        System.arraycopy(ID, 0, IDs, size * ObjectStore.ID_BYTES, ObjectStore.ID_BYTES);
+        parent1[size] = p1;
+        parent2[size] = p2;
+        generation[size] = 1 + Math.max(p1 == NONE ? 0 : generation[p1], p2 == NONE ? 0 : generation[p2]);
+        size += 1;
+        if (2 * size > slots.length) {
+            reindex(2 * slots.length);
+        } else {
+            insert(size - 1);
+        }
+        return size - 1;
+    }
+
+    /** Read the records of GRAPH past those already loaded, up to the position END, which
+     *  other processes appended since. */
+    private static void catchUp(FileChannel graph, long end) throws IOException {
+        long start = (long) size * RECORD_BYTES;
+        if (end <= start) {
+            return;
+        }
+        ByteBuffer records = ByteBuffer.allocate((int) (end - start));
+        while (records.hasRemaining()) {
+            if (graph.read(records, start + records.position()) < 0) {
+                break;
+            }
+        }
+        records.flip();
+        byte[] ID = new byte[ObjectStore.ID_BYTES];
+        while (records.remaining() >= RECORD_BYTES) {
+            records.get(ID);
+            int p1 = records.getInt();
+            int p2 = records.getInt();
+            records.getInt();
+            append(ID, p1, p2);
+        }
+    }
+
+    /** Read the graph file, rebuilding it for repositories that predate the graph. A partial
+     *  record at the end is ignored, and dropped by the next add. */
+    private static void load() {
+        if (size >= 0) {
+            return;
+        }
+        size = 0;
+        if (!GRAPH_FILE.exists()) {
+            IDs = new byte[0];
+            parent1 = new int[0];
+            parent2 = new int[0];
+            generation = new int[0];
+            slots = new int[16];
+            writeContents(GRAPH_FILE, new byte[0]);
+            for (String commitID : ObjectIndex.objectIDs(ObjectIndex.COMMIT)) {
+                if (find(commitID) == NONE) {
+                    addWithAncestors(commitID);
+                }
+            }
+            return;
+        }
+
+        ByteBuffer records = ByteBuffer.wrap(readContents(GRAPH_FILE));
+        int count = records.capacity() / RECORD_BYTES;
+        IDs = new byte[count * ObjectStore.ID_BYTES];
+        parent1 = new int[count];
+        parent2 = new int[count];
+        generation = new int[count];
+        for (int i = 0; i < count; i++) {
+            records.get(IDs, i * ObjectStore.ID_BYTES, ObjectStore.ID_BYTES);
+            parent1[i] = records.getInt();
+            parent2[i] = records.getInt();
+            generation[i] = records.getInt();
+        }
+        size = count;
+        reindex(Integer.highestOneBit(Math.max(8, count)) * 4);
+    }
+}
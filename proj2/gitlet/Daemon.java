@@ -0,0 +1,150 @@
+package gitlet;
+
+import java.io.*;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static gitlet.Utils.*;
+
+/** A long-running server for the commands of one repository.
+ *  Started with "gitlet daemon" in the repository, it listens on the Unix-domain socket
+ *  SOCKET_FILE and runs each command it receives in the same JVM, so the object index, the
+ *  commit graph, the stat cache and the staging area stay loaded between commands and no
+ *  command pays for JVM startup. Commands are served one at a time, in the order they
+ *  arrive. "gitlet daemon stop" stops it.
+ *
+ *  Other processes may still write the repository, as init, push into it and the commands
+ *  run without the daemon do. Before each command the daemon therefore reads the files it
+ *  has cached again, and drops any cache whose files changed size, modification time or
+ *  inode since the end of the previous command.
+ *
+ *  A request is the number of arguments followed by each argument, all as Strings
+ *  written by writeString. The response is the output of the command, up to the end of
+ *  the connection.
+ *  @author Ethan
+ */
+public class Daemon {
+    /** The socket the daemon listens on. */
+    public static final File SOCKET_FILE = join(Repository.GITLET_DIR, "daemon.sock");
+
+    /** The files behind the caches kept between commands, with the way to drop each. */
+    private static final Map<File, Runnable> CACHED = new LinkedHashMap<>();
+    static {
+        CACHED.put(CommitGraph.GRAPH_FILE, CommitGraph::unload);
+        CACHED.put(ObjectIndex.INDEX_FILE, ObjectIndex::unload);
+        CACHED.put(ObjectIndex.LOG_FILE, ObjectIndex::unload);
+        CACHED.put(ObjectStore.PACK_INDEX, ObjectStore::unload);
+        CACHED.put(StatCache.STAT_DIR, StatCache::unload);
+    }
+    /** The stat information of each file of CACHED at the end of the previous command. */
+    private static final Map<File, long[]> stamps = new HashMap<>();
+
+    /** True while this JVM is serving commands. */
+    private static boolean serving;
+    /** True once a stop command has been received. */
+    private static boolean stopping;
+
+    /** Serve commands until a stop command is received. */
+    public static void serve() {
+        if (serving) {
+            throw error("A daemon is already running.");
+        }
+        // Only a socket left by a daemon that did not stop cleanly can still exist here
+        SOCKET_FILE.delete();
+        try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            server.bind(UnixDomainSocketAddress.of(SOCKET_FILE.toPath()));
+            Runtime.getRuntime().addShutdownHook(new Thread(SOCKET_FILE::delete));
+            serving = true;
+            while (!stopping) {
+                try (SocketChannel client = server.accept()) {
+                    handle(client);
+                } catch (IOException excp) {
+                    // The client went away; nothing is left to answer
+                }
+            }
+        } catch (IOException excp) {
+            throw error("Cannot start daemon: %s", excp.getMessage());
+        } finally {
+            serving = false;
+            SOCKET_FILE.delete();
+        }
+    }
+
+    /** Stop serving once the current command is answered. */
+    public static void stop() {
+        if (!serving) {
+            throw error("No daemon is running.");
+        }
+        stopping = true;
+    }
+
+    /** Run the command received from CLIENT and send back its output. */
+    private static void handle(SocketChannel client) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(client)));
+        String[] args = new String[in.readInt()];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = readString(in);
+        }
+
+        PrintStream stdout = System.out;
+        PrintStream out = new PrintStream(new BufferedOutputStream(Channels.newOutputStream(client)),
+                                          false, StandardCharsets.UTF_8);
+        System.setOut(out);
+        try {
+            reload();
+            Main.run(args);
+            Journal.commit();
+        } catch (GitletException excp) {
+            Journal.discard();
+            System.out.println(excp.getMessage());
+        } catch (Throwable excp) {
+            Journal.discard();
+            // Keep serving the other commands
+            System.out.println("Internal error: " + excp);
+        } finally {
+            try {
+                StatCache.flush();
+            } catch (Throwable excp) {
+                StatCache.unload();
+            }
+            for (File file : CACHED.keySet()) {
+                stamps.put(file, StatCache.stat(file));
+            }
+            System.setOut(stdout);
+            out.flush();
+        }
+    }
+
+    /** Drop the cached contents of files that other processes may have changed since the
+     *  previous command. */
+    private static void reload() {
+        Journal.unload();
+        for (Map.Entry<File, Runnable> cached : CACHED.entrySet()) {
+            if (!Arrays.equals(stamps.get(cached.getKey()), StatCache.stat(cached.getKey()))) {
+                cached.getValue().run();
+            }
+        }
+    }
+
+    /** Write VALUE to OUT as its length followed by its UTF-8 bytes. */
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /** Return the next String written by writeString from IN. */
+    static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,181 @@
+package gitlet;
+
+import java.util.Arrays;
+
+/** Line diffs computed with Myers' O(ND) algorithm in linear space.
+ *  Lines are given as int arrays, where equal lines have equal numbers. The middle snake of
+ *  the shortest edit script is found by searching forward from the start and backward from
+ *  the end at the same time, and the two halves on either side of it are diffed in turn,
+ *  so only O(N + M) memory is ever used however different the inputs are.
+ *
+ *  As in git, lines that appear in only one input are left out before searching, since
+ *  they can never be matched, and a search that passes MIN_COST edits without meeting in
+ *  the middle is cut short at its furthest point, trading a minimal diff for a bounded
+ *  running time on inputs that have little in common.
+ *  @author Ethan
+ */
+class Diff {
+    /** The fewest edits a search may reach before it is cut short. */
+    private static final int MIN_COST = 256;
+
+    private final int[] a;
+    private final int[] b;
+    /** For each line of A, the index of the line of B it is matched with, or -1. */
+    private final int[] matches;
+    /** The furthest reaching x on each diagonal of the forward and backward searches. */
+    private final int[] forward;
+    private final int[] backward;
+
+    private Diff(int[] a, int[] b) {
+        this.a = a;
+        this.b = b;
+        this.matches = new int[a.length];
+        Arrays.fill(matches, -1);
+        int size = a.length + b.length + 4;
+        this.forward = new int[size];
+        this.backward = new int[size];
+    }
+
+    /** Return, for each line of A, the index of the line of B it is matched with in a
+     *  longest common subsequence of A and B, or -1 if it is deleted. */
+    static int[] match(int[] a, int[] b) {
+        int numbers = 0;
+        for (int line : a) {
+            numbers = Math.max(numbers, line + 1);
+        }
+        for (int line : b) {
+            numbers = Math.max(numbers, line + 1);
+        }
+        boolean[] inA = new boolean[numbers];
+        boolean[] inB = new boolean[numbers];
+        for (int line : a) {
+            inA[line] = true;
+        }
+        for (int line : b) {
+            inB[line] = true;
+        }
+        int[] aIndices = common(a, inB);
+        int[] bIndices = common(b, inA);
+
+        int[] aLines = new int[aIndices.length];
+        for (int i = 0; i < aIndices.length; i++) {
+            aLines[i] = a[aIndices[i]];
+        }
+        int[] bLines = new int[bIndices.length];
+        for (int i = 0; i < bIndices.length; i++) {
+            bLines[i] = b[bIndices[i]];
+        }
+        Diff diff = new Diff(aLines, bLines);
+        diff.compare(0, aLines.length, 0, bLines.length);
+
+        int[] result = new int[a.length];
+        Arrays.fill(result, -1);
+        for (int i = 0; i < aIndices.length; i++) {
+            if (diff.matches[i] >= 0) {
+                result[aIndices[i]] = bIndices[diff.matches[i]];
+            }
+        }
+        return result;
+    }
+
+    /** Return the indices of the lines of TEXT that are in OTHER. */
+    private static int[] common(int[] text, boolean[] other) {
+        int[] result = new int[text.length];
+        int n = 0;
+        for (int i = 0; i < text.length; i++) {
+            if (other[text[i]]) {
+                result[n++] = i;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    /** Match the lines of A[ALO..AHI) with those of B[BLO..BHI). */
+    private void compare(int aLo, int aHi, int bLo, int bHi) {
+        while (aLo < aHi && bLo < bHi && a[aLo] == b[bLo]) {
+            matches[aLo++] = bLo++;
+        }
+        while (aLo < aHi && bLo < bHi && a[aHi - 1] == b[bHi - 1]) {
+            matches[--aHi] = --bHi;
+        }
+        if (aLo == aHi || bLo == bHi) {
+            return;
+        }
+        // Past the common prefix and suffix, at least two edits are left, so both halves
+        // around the middle snake are strictly smaller problems
+        int[] snake = middleSnake(aLo, aHi, bLo, bHi);
+        compare(aLo, snake[0], bLo, snake[1]);
+        for (int x = snake[0], y = snake[1]; x < snake[2]; x++, y++) {
+            matches[x] = y;
+        }
+        compare(snake[2], aHi, snake[3], bHi);
+    }
+
+    /** Return the start and end points {X, Y, U, V} of the middle snake of the shortest
+     *  edit script from A[ALO..AHI) to B[BLO..BHI), in absolute indices. */
+    private int[] middleSnake(int aLo, int aHi, int bLo, int bHi) {
+        int n = aHi - aLo;
+        int m = bHi - bLo;
+        int delta = n - m;
+        boolean odd = (delta & 1) != 0;
+        int offset = (n + m + 1) / 2 + 1;
+        int maxCost = Math.max(MIN_COST, (int) Math.sqrt(n + m));
+        forward[offset + 1] = 0;
+        backward[offset + 1] = 0;
+
+        for (int d = 0; d <= (n + m + 1) / 2; d++) {
+            for (int k = -d; k <= d; k += 2) {
+                int x = k == -d || (k != d && forward[offset + k - 1] < forward[offset + k + 1])
+                        ? forward[offset + k + 1] : forward[offset + k - 1] + 1;
+                int y = x - k;
+                int x0 = x;
+                int y0 = y;
+                while (x < n && y < m && a[aLo + x] == b[bLo + y]) {
+                    x++;
+                    y++;
+                }
+                forward[offset + k] = x;
+                int c = delta - k;
+                if (odd && c >= -(d - 1) && c <= d - 1 && x + backward[offset + c] >= n) {
+                    return new int[] {aLo + x0, bLo + y0, aLo + x, bLo + y};
+                }
+            }
+            for (int k = -d; k <= d; k += 2) {
+                int x = k == -d || (k != d && backward[offset + k - 1] < backward[offset + k + 1])
+                        ? backward[offset + k + 1] : backward[offset + k - 1] + 1;
+                int y = x - k;
+                int x0 = x;
+                int y0 = y;
+                while (x < n && y < m && a[aHi - 1 - x] == b[bHi - 1 - y]) {
+                    x++;
+                    y++;
+                }
+                backward[offset + k] = x;
+                int c = delta - k;
+                if (!odd && c >= -d && c <= d && x + forward[offset + c] >= n) {
+                    return new int[] {aHi - x, bHi - y, aHi - x0, bHi - y0};
+                }
+            }
+            if (d >= maxCost) {
+                return furthestPoint(d, offset, aLo, n, bLo, m);
+            }
+        }
+        throw new IllegalStateException("no middle snake");
+    }
+
+    /** Return the furthest point inside A[ALO..ALO+N) and B[BLO..BLO+M) reached by the
+     *  forward search after D edits, as an empty snake {X, Y, X, Y}. */
+    private int[] furthestPoint(int d, int offset, int aLo, int n, int bLo, int m) {
+        int bestX = n / 2;
+        int bestY = m / 2;
+        for (int k = -d; k <= d; k += 2) {
+            int x = forward[offset + k];
+            int y = x - k;
+            if (x <= n && y >= 0 && y <= m && x + y < n + m && x + y > bestX + bestY) {
+                bestX = x;
+                bestY = y;
+            }
+        }
+        return new int[] {aLo + bestX, bLo + bestY, aLo + bestX, bLo + bestY};
+    }
+}
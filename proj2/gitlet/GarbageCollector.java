@@ -0,0 +1,120 @@
+package gitlet;
+
+import java.util.*;
+
+import static gitlet.Utils.*;
+
+/** Removes the objects that nothing refers to any more: blobs that were staged and then
+ *  replaced or unstaged, merge results that were never committed, and commits left behind
+ *  by reset together with their trees and blobs.
+ *
+ *  The mark phase walks the commit graph from every branch head, and every tree, blob and
+ *  chunk below those commits, together with the blobs of the staging area. The sweep then
+ *  rewrites the pack with only the marked objects and deletes the unmarked loose ones in
+ *  parallel. Objects younger than the grace period are spared, since a command running at
+ *  the same time may have written them without referring to them yet; unmarked objects of a
+ *  pack that is still that young are written back loose instead of being dropped.
+ *
+ *  A young object may refer to old ones, as a new commit of content committed long ago
+ *  shares its trees, blobs and chunks, which are only stored once. Everything reachable from
+ *  an unmarked young object is therefore spared as well, as git does.
+ *  @author Ethan
+ */
+public class GarbageCollector {
+    /** How long unreferenced objects are kept, as in git. */
+    private static final long GRACE_MILLIS = 14L * 24 * 60 * 60 * 1000;
+
+    /** Remove the unreachable objects, sparing recent ones unless NOW is true, and
+     *  print how many were removed. */
+    public static void gc(boolean now) {
+        Set<String> reachable = mark();
+        long cutoff = now ? Long.MAX_VALUE : System.currentTimeMillis() - GRACE_MILLIS;
+        Set<String> recent = markRecent(reachable, cutoff);
+        Set<String> removed = ObjectStore.collect(reachable, recent, cutoff);
+
+        Set<String> commits = new HashSet<>();
+        for (String commitID : ObjectIndex.objectIDs(ObjectIndex.COMMIT)) {
+            if (removed.contains(commitID)) {
+                commits.add(commitID);
+            }
+        }
+        ObjectIndex.remove(removed);
+        if (!commits.isEmpty()) {
+            CommitCatalog.remove(commits);
+        }
+        System.out.println("Removed " + removed.size() + " unreachable objects.");
+    }
+
+    /** Return the IDs of every object reachable from a branch head or the staging area. */
+    private static Set<String> mark() {
+        Set<String> marked = new HashSet<>();
+        for (String branch : Repository.branchNames()) {
+            markCommit(Journal.readString(join(Repository.BRANCH_DIR, branch)), marked);
+        }
+        for (String blobID : Repository.readStage().getAddition().values()) {
+            markBlob(blobID, marked);
+        }
+        return marked;
+    }
+
+    /** Return the IDs of the objects outside REACHABLE that an object outside REACHABLE
+     *  written at or after CUTOFF refers to, directly or not, including those objects. */
+    private static Set<String> markRecent(Set<String> reachable, long cutoff) {
+        Set<String> marked = new HashSet<>(reachable);
+        for (String commitID : ObjectIndex.objectIDs(ObjectIndex.COMMIT)) {
+            if (!reachable.contains(commitID) && ObjectStore.lastWritten(commitID) >= cutoff) {
+                markCommit(commitID, marked);
+            }
+        }
+        for (String treeID : ObjectIndex.objectIDs(ObjectIndex.TREE)) {
+            if (!reachable.contains(treeID) && ObjectStore.lastWritten(treeID) >= cutoff) {
+                markTree(treeID, marked);
+            }
+        }
+        for (String blobID : ObjectIndex.objectIDs(ObjectIndex.BLOB)) {
+            if (!reachable.contains(blobID) && ObjectStore.lastWritten(blobID) >= cutoff) {
+                markBlob(blobID, marked);
+            }
+        }
+        marked.removeAll(reachable);
+        return marked;
+    }
+
+    /** Mark the commit TIP, its ancestors and everything below them. */
+    private static void markCommit(String tip, Set<String> marked) {
+        Deque<String> commits = new ArrayDeque<>();
+        commits.push(tip);
+        while (!commits.isEmpty()) {
+            String commitID = commits.pop();
+            if (!marked.add(commitID)) {
+                continue;
+            }
+            Commit commit = ObjectStore.readObject(commitID, Commit.class);
+            for (String parent : commit.getParent()) {
+                if (!parent.isEmpty()) {
+                    commits.push(parent);
+                }
+            }
+            markTree(commit.getTreeID(), marked);
+        }
+    }
+
+    private static void markTree(String treeID, Set<String> marked) {
+        if (!marked.add(treeID)) {
+            return;
+        }
+        for (Map.Entry<String, String> entry : ObjectStore.readObject(treeID, Tree.class).getEntries().entrySet()) {
+            if (Tree.isDirectory(entry.getKey())) {
+                markTree(entry.getValue(), marked);
+            } else {
+                markBlob(entry.getValue(), marked);
+            }
+        }
+    }
+
+    private static void markBlob(String blobID, Set<String> marked) {
+        if (marked.add(blobID)) {
+            marked.addAll(ObjectStore.readObject(blobID, Blob.class).getChunks());
+        }
+    }
+}
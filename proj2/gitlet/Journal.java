@@ -0,0 +1,346 @@
+package gitlet;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32;
+
+import static gitlet.Utils.*;
+import static java.nio.file.StandardOpenOption.*;
+
+/** A write-ahead journal for the refs and the snapshot of the staging area.
+ *  Writes and deletions of those files are held in memory until the end of the command,
+ *  where commit() makes them durable as a group: the object files written by the command
+ *  and the records of them appended to the object index, commit graph and catalog are
+ *  synced, a single record holding every pending change is appended to JOURNAL_FILE and
+ *  synced, and only then is each change applied by writing a temporary file and renaming it
+ *  over the target. Reads during the command see the pending changes.
+ *
+ *  Applied files are not synced one by one. Instead the journal keeps every record until it
+ *  grows past CHECKPOINT_BYTES, when all the files it covers are synced at once and it is
+ *  emptied. After a crash, recover() replays the journal, so every file ends up as its last
+ *  committed record left it, and a torn record at the end is dropped.
+ *
+ *  The staging area is the exception: changes to single paths are appended to its own log
+ *  by StageLog, and only its rewritten snapshot goes through the journal.
+ *
+ *  Several processes may run commands in the same repository, so a process holds LOCK_FILE
+ *  from appending its record until the record is applied, and recover() holds it while it
+ *  replays. A replay therefore never sees a record that is still being applied, and never
+ *  applies a record older than one that has been applied since it read the journal.
+ *
+ *  A record is a 4-byte length, the changes in the format of Codec, and the CRC-32 of the
+ *  changes. Each change is the path of its file relative to GITLET_DIR and either the new
+ *  contents or a deletion.
+ *  @author Ethan
+ */
+public class Journal {
+    /** The journal file. */
+    public static final File JOURNAL_FILE = join(Repository.GITLET_DIR, "journal");
+    /** The file locked by a process while it appends and applies a record, replays the
+     *  journal or empties it. */
+    private static final File LOCK_FILE = join(Repository.GITLET_DIR, "journal.lock");
+
+    /** The journal size past which its files are synced and it is emptied. */
+    private static final long CHECKPOINT_BYTES = 64 << 10;
+
+    /** The pending changes by file, where null stands for a deletion. */
+    private static final LinkedHashMap<File, byte[]> pending = new LinkedHashMap<>();
+    /** The contents of the files as last read or applied, where null stands for a missing
+     *  file. A daemon drops them before each command by unload(), as other processes may
+     *  have changed the files since. */
+    private static final HashMap<File, byte[]> applied = new HashMap<>();
+    /** The object files, and the logs of the object index, commit graph and catalog,
+     *  written since the last commit, which must be synced before it. */
+    private static final Set<File> unsynced = new LinkedHashSet<>();
+
+    /** Schedule CONTENTS to be written to FILE. */
+    public static synchronized void write(File file, byte[] contents) {
+        pending.put(file, contents);
+    }
+
+    /** Schedule CONTENTS to be written to FILE. */
+    public static void write(File file, String contents) {
+        write(file, contents.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Schedule FILE to be deleted. */
+    public static synchronized void delete(File file) {
+        pending.put(file, null);
+    }
+
+    /** Return the contents of FILE, including pending changes. */
+    public static synchronized byte[] read(File file) {
+        byte[] contents;
+        if (pending.containsKey(file)) {
+            contents = pending.get(file);
+        } else if (applied.containsKey(file)) {
+            contents = applied.get(file);
+        } else {
+            contents = readContents(file);
+            applied.put(file, contents);
+        }
+        if (contents == null) {
+            throw new IllegalArgumentException("must be a normal file");
+        }
+        return contents;
+    }
+
+    /** Return the contents of FILE as a String, including pending changes. */
+    public static String readString(File file) {
+        return new String(read(file), StandardCharsets.UTF_8);
+    }
+
+    /** Return true if FILE exists, including pending changes. */
+    public static synchronized boolean exists(File file) {
+        if (pending.containsKey(file)) {
+            return pending.get(file) != null;
+        } else if (applied.containsKey(file)) {
+            return applied.get(file) != null;
+        }
+        return file.exists();
+    }
+
+    /** Record that FILE, an object file or a log that records objects, was written, so
+     *  that it is synced before the changes that may refer to it are committed. */
+    public static synchronized void written(File file) {
+        unsynced.add(file);
+    }
+
+    /** Make every pending change durable and apply it. */
+    public static synchronized void commit() {
+        if (pending.isEmpty() && !StageLog.changed()) {
+            unsynced.clear();
+            return;
+        }
+        for (File file : unsynced) {
+            sync(file);
+        }
+        sync(Repository.OBJECT_DIR);
+        unsynced.clear();
+
+        // Staged changes are appended to the stage log, unless the snapshot is rewritten
+        StageLog.prepare();
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        Codec.Encoder out = new Codec.Encoder();
+        out.writeVarint(pending.size());
+        for (Map.Entry<File, byte[]> change : pending.entrySet()) {
+            out.writeString(Repository.GITLET_DIR.toPath().relativize(change.getKey().toPath()).toString());
+            byte[] contents = change.getValue();
+            if (contents == null) {
+                out.writeVarint(0);
+            } else {
+                out.writeVarint(contents.length + 1);
+                out.writeBytes(contents);
+            }
+        }
+        byte[] changes = out.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(changes);
+        ByteBuffer record = ByteBuffer.allocate(changes.length + 8);
+        record.putInt(changes.length).put(changes).putInt((int) crc.getValue());
+
+        FileLock lock = lock(LOCK_FILE);
+        try {
+            try (FileChannel journal = FileChannel.open(JOURNAL_FILE.toPath(), CREATE, WRITE, APPEND)) {
+                record.flip();
+                while (record.hasRemaining()) {
+                    journal.write(record);
+                }
+                journal.force(false);
+            } catch (IOException excp) {
+                throw error("Cannot write journal: %s", excp.getMessage());
+            }
+
+            for (Map.Entry<File, byte[]> change : pending.entrySet()) {
+                apply(change.getKey(), change.getValue());
+            }
+            if (JOURNAL_FILE.length() > CHECKPOINT_BYTES) {
+                checkpoint();
+            }
+        } finally {
+            release(lock);
+        }
+        pending.clear();
+        StageLog.finish();
+    }
+
+    /** Drop every pending change. */
+    public static synchronized void discard() {
+        pending.clear();
+        unsynced.clear();
+        StageLog.discard();
+    }
+
+    /** Forget the contents of the files as last read or applied, so they are read again. */
+    public static synchronized void unload() {
+        applied.clear();
+    }
+
+    /** Bring every file covered by the journal to the state of its last complete record,
+     *  dropping any torn record at the end. Returns the paths of the files that were
+     *  repaired. */
+    public static synchronized List<String> recover() {
+        List<String> repaired = new ArrayList<>();
+        if (!JOURNAL_FILE.exists()) {
+            return repaired;
+        }
+        FileLock lock = lock(LOCK_FILE);
+        try {
+            byte[] journal = readContents(JOURNAL_FILE);
+            TreeMap<String, byte[]> latest = new TreeMap<>();
+            int valid = readRecords(journal, latest::put);
+
+            for (Map.Entry<String, byte[]> entry : latest.entrySet()) {
+                File file = join(Repository.GITLET_DIR, entry.getKey());
+                byte[] contents = entry.getValue();
+                boolean intact = contents == null ? !file.exists()
+                                 : file.isFile() && Arrays.equals(readContents(file), contents);
+                if (!intact) {
+                    apply(file, contents);
+                    repaired.add(entry.getKey());
+                }
+            }
+            if (valid < journal.length) {
+                try (FileChannel channel = FileChannel.open(JOURNAL_FILE.toPath(), WRITE)) {
+                    channel.truncate(valid);
+                    channel.force(false);
+                } catch (IOException excp) {
+                    throw error("Cannot repair journal: %s", excp.getMessage());
+                }
+            }
+        } finally {
+            release(lock);
+        }
+        return repaired;
+    }
+
+    /** Write CONTENTS to FILE through a temporary file renamed over it, so that FILE always
+     *  holds either its old or its new contents. The temporary file has a name of its own, as
+     *  other processes may be replacing FILE at the same time. Nothing is synced. */
+    public static void replace(File file, byte[] contents) {
+        File temp;
+        try {
+            temp = Files.createTempFile(file.getParentFile().toPath(), file.getName() + ".", ".tmp").toFile();
+        } catch (IOException excp) {
+            throw error("Cannot write %s: %s", file.getName(), excp.getMessage());
+        }
+        writeContents(temp, (Object) contents);
+        move(temp, file);
+    }
+
+    /** Apply a single change, where null CONTENTS deletes FILE. */
+    private static void apply(File file, byte[] contents) {
+        applied.put(file, contents);
+        if (contents == null) {
+            file.delete();
+        } else {
+            // Remote-tracking branches live in a directory of their own
+            file.getParentFile().mkdirs();
+            replace(file, contents);
+        }
+    }
+
+    /** Return an exclusive lock of FILE, waiting for other processes to release it. */
+    static FileLock lock(File file) {
+        try {
+            FileChannel channel = FileChannel.open(file.toPath(), CREATE, WRITE);
+            return channel.lock();
+        } catch (IOException excp) {
+            throw error("Cannot lock %s: %s", file.getName(), excp.getMessage());
+        }
+    }
+
+    /** Release LOCK by closing its channel. */
+    static void release(FileLock lock) {
+        try {
+            lock.channel().close();
+        } catch (IOException excp) {
+            // Closing the channel releases the lock in any case
+        }
+    }
+
+    /** Sync every file the journal covers, then empty it. */
+    private static void checkpoint() {
+        TreeSet<String> paths = new TreeSet<>();
+        readRecords(readContents(JOURNAL_FILE), (path, contents) -> paths.add(path));
+        TreeSet<File> directories = new TreeSet<>();
+        for (String path : paths) {
+            File file = join(Repository.GITLET_DIR, path);
+            if (file.exists()) {
+                sync(file);
+            }
+            directories.add(file.getParentFile());
+        }
+        directories.forEach(Journal::sync);
+        writeContents(JOURNAL_FILE, new byte[0]);
+        sync(JOURNAL_FILE);
+    }
+
+    /** Call ACTION with the path and new contents, or null for a deletion, of every change
+     *  in the complete records at the start of JOURNAL, in order. Returns the number of bytes
+     *  those records take up. */
+    private static int readRecords(byte[] journal, BiConsumer<String, byte[]> action) {
+        ByteBuffer records = ByteBuffer.wrap(journal);
+        int valid = 0;
+        while (records.remaining() >= 8) {
+            int length = records.getInt();
+            if (length < 0 || records.remaining() < length + 4) {
+                break;
+            }
+            byte[] changes = new byte[length];
+            records.get(changes);
+            CRC32 crc = new CRC32();
+            crc.update(changes);
+            if (records.getInt() != (int) crc.getValue()) {
+                break;
+            }
+            Codec.Decoder in = new Codec.Decoder(changes);
+            int count = in.readCount();
+            for (int i = 0; i < count; i++) {
+                String path = in.readString();
+                int size = in.readCount();
+                action.accept(path, size == 0 ? null : in.readBytes(size - 1));
+            }
+            valid = records.position();
+        }
+        return valid;
+    }
+
+    /** Rename SOURCE over TARGET, atomically where the file system allows it. */
+    private static void move(File source, File target) {
+        try {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException excp) {
+            try {
+                Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                throw error("Cannot write %s: %s", target.getName(), e.getMessage());
+            }
+        } catch (IOException excp) {
+            throw error("Cannot write %s: %s", target.getName(), excp.getMessage());
+        }
+    }
+
+    /** Flush FILE, which may be a directory, to the storage device. Directories cannot be
+     *  synced on every platform, in which case nothing is done for them. */
+    private static void sync(File file) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), READ)) {
+            channel.force(true);
+        } catch (IOException excp) {
+            if (!file.isDirectory()) {
+                throw error("Cannot sync %s: %s", file.getName(), excp.getMessage());
+            }
+        }
+    }
+}
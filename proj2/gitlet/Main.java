@@ -1,7 +1,12 @@
 package gitlet;
 
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Objects;
 
+import static gitlet.Utils.*;
+
 /** Driver class for Gitlet, a subset of the Git version-control system.
  *  @author Ethan
  */
@@ -12,57 +17,89 @@ public class Main {
      */
     public static void checkValid() {
         if (!Repository.isInitialized()) {
-            System.out.println("Not in an initialized Gitlet directory.");
-            System.exit(0);
+            throw error("Not in an initialized Gitlet directory.");
         }
     }
     public static void main(String[] args) {
+        // Commands of a repository with a running daemon are served by the daemon
+        if (args.length > 0 && !List.of("init", "upload-pack", "receive-pack").contains(args[0])
+            && Client.forward(args)) {
+            return;
+        }
+        try {
+            // Finish the refs and staging changes of a command that was interrupted, which
+            // fsck does itself to report them
+            if (args.length == 0 || !args[0].equals("fsck")) {
+                Journal.recover();
+            }
+            run(args);
+            Journal.commit();
+        } catch (GitletException excp) {
+            // A failed command leaves the refs and the staging area unchanged
+            Journal.discard();
+            System.out.println(excp.getMessage());
+        } finally {
+            StatCache.flush();
+        }
+    }
+
+    /** Run the command given by ARGS, throwing a GitletException with the message to print
+     *  if it fails. */
+    public static void run(String[] args) {
         String firstArg = null;
         try {
             firstArg = args[0];
         } catch (java.lang.ArrayIndexOutOfBoundsException exception) {
-            System.out.println("Please enter a command.");
-            System.exit(0);
+            throw error("Please enter a command.");
         }
 
         switch (firstArg) {
             case "init" -> {
                 if (Repository.isInitialized()) {
-                    System.out.println("A Gitlet version-control system already exists in the current directory.");
-                    System.exit(0);
+                    throw error("A Gitlet version-control system already exists in the current directory.");
                 }
                 Repository.init();
             }
             case "add" -> {
                 checkValid();
                 if (args.length < 2) {
-                    System.out.println("Please enter a filename.");
-                    System.exit(0);
+                    throw error("Please enter a filename.");
                 }
-                Repository.add(args[1]);
+                Repository.add(Arrays.asList(args).subList(1, args.length));
             }
             case "commit" -> {
                 checkValid();
                 if (args.length < 2) {
-                    System.out.println("Please enter a commit message.");
-                    System.exit(0);
+                    throw error("Please enter a commit message.");
                 } else if (args.length > 2) {
-                    System.out.println("Please quote your message.");
-                    System.exit(0);
+                    throw error("Please quote your message.");
                 }
                 Repository.commit(args[1]);
             }
             case "rm" -> {
                 checkValid();
                 if (args.length < 2) {
-                    System.out.println("Please enter a filename.");
-                    System.exit(0);
+                    throw error("Please enter a filename.");
                 }
                 Repository.rm(args[1]);
             }
             case "log" -> {
                 checkValid();
-                Repository.log();
+                int limit = Integer.MAX_VALUE;
+                int skip = 0;
+                String since = null;
+                for (int i = 1; i < args.length; i += 2) {
+                    if (i + 1 == args.length) {
+                        throw error("Incorrect operands.");
+                    }
+                    switch (args[i]) {
+                        case "-n" -> limit = parseCount(args[i + 1]);
+                        case "--skip" -> skip = parseCount(args[i + 1]);
+                        case "--since" -> since = args[i + 1];
+                        default -> throw error("Incorrect operands.");
+                    }
+                }
+                Repository.log(limit, skip, since);
             }
             case "global-log" -> {
                 checkValid();
@@ -71,8 +108,7 @@ public class Main {
             case "find" -> {
                 checkValid();
                 if (args.length < 2) {
-                    System.out.println("Please enter a message to find.");
-                    System.exit(0);
+                    throw error("Please enter a message to find.");
                 }
                 Repository.find(args[1]);
             }
@@ -84,59 +120,128 @@ public class Main {
                 checkValid();
                 if (args.length == 3) {
                     if (!Objects.equals(args[1], "--")) {
-                        System.out.println("Incorrect operands.");
-                        System.exit(0);
+                        throw error("Incorrect operands.");
                     }
                     Repo.checkout(args[2], null, null);
                 } else if (args.length == 4) {
                     if (!Objects.equals(args[2], "--")) {
-                        System.out.println("Incorrect operands.");
-                        System.exit(0);
+                        throw error("Incorrect operands.");
                     }
                     Repo.checkout(args[3], args[1], null);
                 } else if (args.length == 2) {
                     Repo.checkout(null, null, args[1]);
                 } else {
-                    System.out.println("Please enter a correct command.");
-                    System.exit(0);
+                    throw error("Please enter a correct command.");
                 }
             }
             case "branch" -> {
                 checkValid();
                 if (args.length < 2) {
-                    System.out.println("Please enter a branch name.");
-                    System.exit(0);
+                    throw error("Please enter a branch name.");
                 }
                 Repository.branch(args[1]);
             }
             case "rm-branch" -> {
                 checkValid();
                 if (args.length < 2) {
-                    System.out.println("Please enter a branch name.");
-                    System.exit(0);
+                    throw error("Please enter a branch name.");
                 }
                 Repository.rmBranch(args[1]);
             }
             case "reset" -> {
                 checkValid();
                 if (args.length < 2) {
-                    System.out.println("Please enter a commit ID.");
-                    System.exit(0);
+                    throw error("Please enter a commit ID.");
                 }
                 Repo.reset(args[1]);
             }
             case "merge" -> {
                 checkValid();
                 if (args.length < 2) {
-                    System.out.println("Please specify a branch to merge.");
-                    System.exit(0);
+                    throw error("Please specify a branch to merge.");
                 }
                 Repo.merge(args[1]);
             }
+            case "repack" -> {
+                checkValid();
+                ObjectStore.repack();
+            }
+            case "stats" -> {
+                checkValid();
+                ObjectStore.stats();
+            }
+            case "add-remote" -> {
+                checkValid();
+                if (args.length != 3) {
+                    throw error("Incorrect operands.");
+                }
+                Remote.addRemote(args[1], args[2]);
+            }
+            case "rm-remote" -> {
+                checkValid();
+                if (args.length != 2) {
+                    throw error("Incorrect operands.");
+                }
+                Remote.rmRemote(args[1]);
+            }
+            case "fetch", "push", "pull" -> {
+                checkValid();
+                if (args.length != 3) {
+                    throw error("Incorrect operands.");
+                }
+                switch (firstArg) {
+                    case "fetch" -> Remote.fetch(args[1], args[2]);
+                    case "push" -> Remote.push(args[1], args[2]);
+                    default -> Remote.pull(args[1], args[2]);
+                }
+            }
+            case "upload-pack", "receive-pack" -> {
+                checkValid();
+                try {
+                    if (firstArg.equals("upload-pack")) {
+                        Remote.uploadPack();
+                    } else {
+                        Remote.receivePack();
+                    }
+                } catch (IOException excp) {
+                    throw error("Lost connection to the other repository: %s", excp.getMessage());
+                }
+            }
+            case "gc" -> {
+                checkValid();
+                if (args.length == 2 && !args[1].equals("now")) {
+                    throw error("Incorrect operands.");
+                }
+                GarbageCollector.gc(args.length == 2);
+            }
+            case "fsck" -> {
+                checkValid();
+                Repository.fsck();
+            }
+            case "daemon" -> {
+                checkValid();
+                if (args.length == 2 && args[1].equals("stop")) {
+                    Daemon.stop();
+                } else {
+                    Daemon.serve();
+                }
+            }
             default -> {
-                System.out.println("No command with that name exists.");
-                System.exit(0);
+                throw error("No command with that name exists.");
+            }
+        }
+    }
+
+    /** Return the non-negative count given by ARG. */
+    private static int parseCount(String arg) {
+        try {
+            int count = Integer.parseInt(arg);
+            if (count >= 0) {
+                return count;
             }
+        } catch (NumberFormatException excp) {
+            // Reported below
         }
+        throw error("Incorrect operands.");
     }
 }
@@ -0,0 +1,126 @@
+package gitlet;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/** Three-way merge of files, line by line, in the manner of diff3.
+ *  The current and given versions are each diffed against the split-point version. Lines
+ *  matched in all three versions are stable; between stable runs, a hunk changed on only one
+ *  side takes that side's lines, a hunk changed the same way on both sides is taken once, and
+ *  any other hunk is a conflict, written between the same markers as a whole-file conflict.
+ *
+ *  Contents are handled as ISO-8859-1 text, which maps every byte to a character of its
+ *  own, so the lines of binary and non-UTF-8 files are merged byte for byte.
+ *  @author Ethan
+ */
+class Merge {
+    /** The merged content, one character per byte. */
+    private final StringBuilder result = new StringBuilder();
+    /** True if any hunk was a conflict. */
+    private boolean conflicted;
+
+    /** The distinct lines of the three versions; each line is given by its index here. */
+    private final List<String> lines = new ArrayList<>();
+
+    /** Return the merge of the contents CURRENT and GIVEN, which both derive from SPLIT. */
+    static Merge merge(byte[] split, byte[] current, byte[] given) {
+        Merge merge = new Merge();
+        Map<String, Integer> numbers = new HashMap<>();
+        int[] o = merge.number(new String(split, StandardCharsets.ISO_8859_1), numbers);
+        int[] a = merge.number(new String(current, StandardCharsets.ISO_8859_1), numbers);
+        int[] b = merge.number(new String(given, StandardCharsets.ISO_8859_1), numbers);
+        merge.merge(o, a, b, Diff.match(o, a), Diff.match(o, b));
+        return merge;
+    }
+
+    /** Return the merged content. */
+    byte[] getContent() {
+        return result.toString().getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    /** Return true if the merged text contains conflicts. */
+    boolean isConflicted() {
+        return conflicted;
+    }
+
+    /** Return the lines of TEXT, each with its line terminator, as numbers given by NUMBERS. */
+    private int[] number(String text, Map<String, Integer> numbers) {
+        int[] result = new int[16];
+        int n = 0;
+        int start = 0;
+        while (start < text.length()) {
+            int end = text.indexOf('\n', start);
+            end = end < 0 ? text.length() : end + 1;
+            String line = text.substring(start, end);
+            Integer number = numbers.get(line);
+            if (number == null) {
+                number = lines.size();
+                numbers.put(line, number);
+                lines.add(line);
+            }
+            if (n == result.length) {
+                result = Arrays.copyOf(result, n * 2);
+            }
+            result[n++] = number;
+            start = end;
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    /** Merge A and B, whose lines are matched with those of O by MA and MB. */
+    private void merge(int[] o, int[] a, int[] b, int[] ma, int[] mb) {
+        int lo = 0;
+        int la = 0;
+        int lb = 0;
+        while (lo < o.length || la < a.length || lb < b.length) {
+            // Copy the run of lines matched in all three versions
+            int i = 0;
+            while (lo + i < o.length && ma[lo + i] == la + i && mb[lo + i] == lb + i) {
+                i++;
+            }
+            if (i > 0) {
+                append(o, lo, lo + i);
+                lo += i;
+                la += i;
+                lb += i;
+                continue;
+            }
+
+            // Find the next line of O matched in both versions, which ends this hunk
+            int end = lo;
+            while (end < o.length && (ma[end] < 0 || mb[end] < 0)) {
+                end++;
+            }
+            int aEnd = end < o.length ? ma[end] : a.length;
+            int bEnd = end < o.length ? mb[end] : b.length;
+            resolve(o, lo, end, a, la, aEnd, b, lb, bEnd);
+            lo = end;
+            la = aEnd;
+            lb = bEnd;
+        }
+    }
+
+    /** Append the merge of the hunks O[OLO..OHI), A[ALO..AHI) and B[BLO..BHI). */
+    private void resolve(int[] o, int oLo, int oHi, int[] a, int aLo, int aHi, int[] b, int bLo, int bHi) {
+        boolean aChanged = !Arrays.equals(o, oLo, oHi, a, aLo, aHi);
+        boolean bChanged = !Arrays.equals(o, oLo, oHi, b, bLo, bHi);
+        if (!aChanged) {
+            append(b, bLo, bHi);
+        } else if (!bChanged || Arrays.equals(a, aLo, aHi, b, bLo, bHi)) {
+            append(a, aLo, aHi);
+        } else {
+            conflicted = true;
+            result.append("<<<<<<< HEAD\n");
+            append(a, aLo, aHi);
+            result.append("=======\n");
+            append(b, bLo, bHi);
+            result.append(">>>>>>>\n");
+        }
+    }
+
+    private void append(int[] text, int from, int to) {
+        for (int i = from; i < to; i++) {
+            result.append(lines.get(text[i]));
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package gitlet;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** A cache of decoded objects in front of the object store, bounded by the total encoded
+ *  size of the objects it holds and evicting the least recently used object first. Within a
+ *  command, and across the commands served by a daemon, each object is then decoded once
+ *  for as long as it stays in use.
+ *
+ *  Cached objects are shared by every reader, so they must not be changed.
+ *  @author Ethan
+ */
+class ObjectCache {
+    /** The cached objects with their encoded sizes, from least to most recently used. */
+    private final LinkedHashMap<String, Map.Entry<Object, Integer>> entries =
+        new LinkedHashMap<>(16, 0.75f, true);
+    /** The largest total encoded size of the cached objects. */
+    private final long capacity;
+    private long size;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    ObjectCache(long capacity) {
+        this.capacity = capacity;
+    }
+
+    /** Return the cached object with the given UID, or null if it is not cached. */
+    synchronized Object get(String UID) {
+        Map.Entry<Object, Integer> entry = entries.get(UID);
+        if (entry == null) {
+            misses += 1;
+            return null;
+        }
+        hits += 1;
+        return entry.getKey();
+    }
+
+    /** Cache OBJ as the object with the given UID, whose encoded form has SIZE bytes.
+     *  Objects larger than the whole cache are not cached. */
+    synchronized void put(String UID, Object obj, int size) {
+        if (size > capacity) {
+            return;
+        }
+        Map.Entry<Object, Integer> previous = entries.put(UID, Map.entry(obj, size));
+        this.size += size - (previous == null ? 0 : previous.getValue());
+        Iterator<Map.Entry<Object, Integer>> eldest = entries.values().iterator();
+        while (this.size > capacity) {
+            this.size -= eldest.next().getValue();
+            eldest.remove();
+            evictions += 1;
+        }
+    }
+
+    /** Return the hit, miss and eviction counts, the number of cached objects, and their
+     *  total and largest encoded size, in that order. */
+    synchronized long[] stats() {
+        return new long[] {hits, misses, evictions, entries.size(), size, capacity};
+    }
+}
@@ -0,0 +1,297 @@
+package gitlet;
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.*;
+
+import static gitlet.Utils.*;
+import static java.nio.file.StandardOpenOption.*;
+
+/** A persistent index of every object ID in the repository together with its type.
+ *  The index is kept as a sorted file, which is memory-mapped and binary-searched, plus a
+ *  small append-only log of objects written since the sorted file was last rebuilt. Once
+ *  the log grows past LOG_LIMIT records it is merged into the sorted file.
+ *
+ *  Both files hold fixed-size records of the raw 20-byte ID followed by a type byte. The
+ *  sorted file starts with the same 256-entry fan-out table as the pack index.
+ *  @author Ethan
+ */
+public class ObjectIndex {
+    /** The sorted index of object IDs. */
+    public static final File INDEX_FILE = join(Repository.GITLET_DIR, "object-index");
+    /** The log of object IDs written after INDEX_FILE was built. */
+    public static final File LOG_FILE = join(Repository.GITLET_DIR, "object-index.log");
+
+    /** Object types recorded in the index. */
+    public static final byte COMMIT = 1;
+    public static final byte BLOB = 2;
+    public static final byte CHUNK = 3;
+    public static final byte TREE = 4;
+
+    /** The number of logged records that triggers a merge into the sorted file. */
+    private static final int LOG_LIMIT = 4096;
+    private static final int FANOUT_BYTES = 256 * 4;
+    private static final int RECORD_BYTES = ObjectStore.ID_BYTES + 1;
+
+    /** The mapped sorted file, or null until it is first needed. */
+    private static MappedByteBuffer sorted;
+    /** The logged records, or null until they are first needed. */
+    private static TreeMap<String, Byte> logged;
+    /** The stream appending to the log, or null until the first record is added. */
+    private static FileOutputStream logStream;
+
+    /** Create an empty index for a newly initialized repository. */
+    public static synchronized void init() {
+        writeSorted(new TreeMap<>());
+        writeContents(LOG_FILE, new byte[0]);
+    }
+
+    /** Record that the object with the given UID and TYPE has been stored. */
+    public static synchronized void add(String UID, byte type) {
+        load();
+        logged.put(UID, type);
+        try {
+            if (logStream == null) {
+                // A crash may have left part of a record, which would shift every later one
+                try (FileChannel log = FileChannel.open(LOG_FILE.toPath(), CREATE, WRITE)) {
+                    log.truncate(log.size() - log.size() % RECORD_BYTES);
+                }
+                logStream = new FileOutputStream(LOG_FILE, true);
+            }
+            byte[] record = Arrays.copyOf(ObjectStore.fromHex(UID), RECORD_BYTES);
+            record[ObjectStore.ID_BYTES] = type;
+            logStream.write(record);
+        } catch (IOException excp) {
+            throw error("Cannot write object index: %s", excp.getMessage());
+        }
+        // The record must be durable before any ref that leads to the object
+        Journal.written(LOG_FILE);
+        if (logged.size() >= LOG_LIMIT) {
+            compact();
+        }
+    }
+
+    /** Return the full ID of the first object of the given TYPE whose ID starts
+     *  with PREFIX, or null if there is no such object. A full ID is also looked up in the
+     *  object store itself, so an object whose record was lost in a crash is still found. */
+    public static synchronized String resolve(String prefix, byte type) {
+        if (!prefix.matches("[0-9a-f]{1,40}")) {
+            return null;
+        }
+        load();
+        String result = null;
+        for (Map.Entry<String, Byte> entry : logged.tailMap(prefix).entrySet()) {
+            if (!entry.getKey().startsWith(prefix)) {
+                break;
+            }
+            if (entry.getValue() == type) {
+                result = entry.getKey();
+                break;
+            }
+        }
+
+        String low = prefix + "0".repeat(UID_LENGTH - prefix.length());
+        int count = sortedCount();
+        for (int i = lowerBound(ObjectStore.fromHex(low)); i < count; i++) {
+            String UID = sortedID(i);
+            if (!UID.startsWith(prefix) || (result != null && UID.compareTo(result) > 0)) {
+                break;
+            }
+            if (sorted.get(FANOUT_BYTES + i * RECORD_BYTES + ObjectStore.ID_BYTES) == type) {
+                return UID;
+            }
+        }
+        if (result == null && prefix.length() == UID_LENGTH && ObjectStore.contains(prefix)
+            && storedType(prefix) == type) {
+            return prefix;
+        }
+        return result;
+    }
+
+    /** Return true if the index records the object with the given UID as of the given TYPE. */
+    public static synchronized boolean contains(String UID, byte type) {
+        load();
+        if (logged.containsKey(UID)) {
+            return logged.get(UID) == type;
+        }
+        int i = lowerBound(ObjectStore.fromHex(UID));
+        return i < sortedCount() && sortedID(i).equals(UID)
+               && sorted.get(FANOUT_BYTES + i * RECORD_BYTES + ObjectStore.ID_BYTES) == type;
+    }
+
+    /** Return the IDs of all objects of the given TYPE in lexicographic order. */
+    public static synchronized List<String> objectIDs(byte type) {
+        load();
+        TreeSet<String> IDs = new TreeSet<>();
+        for (Map.Entry<String, Byte> entry : logged.entrySet()) {
+            if (entry.getValue() == type) {
+                IDs.add(entry.getKey());
+            }
+        }
+        int count = sortedCount();
+        for (int i = 0; i < count; i++) {
+            if (sorted.get(FANOUT_BYTES + i * RECORD_BYTES + ObjectStore.ID_BYTES) == type) {
+                IDs.add(sortedID(i));
+            }
+        }
+        return new ArrayList<>(IDs);
+    }
+
+    /** Merge the logged records into the sorted file and empty the log. */
+    public static synchronized void compact() {
+        remove(Collections.emptySet());
+    }
+
+    /** Drop the objects with the given UIDS, merging the logged records into the sorted
+     *  file and emptying the log. */
+    public static synchronized void remove(Set<String> UIDs) {
+        load();
+        TreeMap<String, Byte> records = new TreeMap<>(logged);
+        int count = sortedCount();
+        for (int i = 0; i < count; i++) {
+            records.put(sortedID(i), sorted.get(FANOUT_BYTES + i * RECORD_BYTES + ObjectStore.ID_BYTES));
+        }
+        records.keySet().removeAll(UIDs);
+        writeSorted(records);
+        try {
+            if (logStream != null) {
+                logStream.close();
+                logStream = null;
+            }
+        } catch (IOException excp) {
+            throw error("Cannot write object index: %s", excp.getMessage());
+        }
+        writeContents(LOG_FILE, new byte[0]);
+        sorted = null;
+        logged = new TreeMap<>();
+    }
+
+    /** Drop the loaded index, so its files are read again when it is next needed. */
+    public static synchronized void unload() {
+        try {
+            if (logStream != null) {
+                logStream.close();
+                logStream = null;
+            }
+        } catch (IOException excp) {
+            throw error("Cannot write object index: %s", excp.getMessage());
+        }
+        sorted = null;
+        logged = null;
+    }
+
+    /** Replace the index with one built from the objects in the store. */
+    public static synchronized void rebuild() {
+        try {
+            if (logStream != null) {
+                logStream.close();
+                logStream = null;
+            }
+        } catch (IOException excp) {
+            throw error("Cannot write object index: %s", excp.getMessage());
+        }
+        build();
+        sorted = null;
+    }
+
+    /** Return the position of the first record in the sorted file not less than ID. */
+    private static int lowerBound(byte[] ID) {
+        int first = ID[0] & 0xff;
+        int lo = first == 0 ? 0 : sorted.getInt((first - 1) * 4);
+        int hi = sorted.getInt(first * 4);
+        byte[] candidate = new byte[ObjectStore.ID_BYTES];
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            sorted.get(FANOUT_BYTES + mid * RECORD_BYTES, candidate);
+            if (Arrays.compareUnsigned(candidate, ID) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /** Return the ID stored at position I of the sorted file. */
+    private static String sortedID(int i) {
+        byte[] ID = new byte[ObjectStore.ID_BYTES];
+        sorted.get(FANOUT_BYTES + i * RECORD_BYTES, ID);
+        return ObjectStore.toHex(ID);
+    }
+
+    /** Return the number of records in the sorted file. */
+    private static int sortedCount() {
+        return sorted.getInt(255 * 4);
+    }
+
+    /** Map the sorted file and read the log, rebuilding both for repositories that
+     *  predate the index. */
+    private static void load() {
+        if (sorted != null) {
+            return;
+        }
+        if (!INDEX_FILE.exists()) {
+            build();
+        }
+        try (FileChannel channel = FileChannel.open(INDEX_FILE.toPath())) {
+            sorted = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException excp) {
+            throw error("Cannot open object index: %s", excp.getMessage());
+        }
+        logged = new TreeMap<>();
+        if (LOG_FILE.exists()) {
+            byte[] log = readContents(LOG_FILE);
+            for (int i = 0; i + RECORD_BYTES <= log.length; i += RECORD_BYTES) {
+                byte[] ID = Arrays.copyOfRange(log, i, i + ObjectStore.ID_BYTES);
+                logged.put(ObjectStore.toHex(ID), log[i + ObjectStore.ID_BYTES]);
+            }
+        }
+    }
+
+    /** Build the sorted file by reading the type of every stored object, and empty the log. */
+    private static void build() {
+        TreeMap<String, Byte> records = new TreeMap<>();
+        for (String UID : ObjectStore.objectIDs()) {
+            records.put(UID, storedType(UID));
+        }
+        writeSorted(records);
+        writeContents(LOG_FILE, new byte[0]);
+    }
+
+    /** Return the type of the stored object with the given UID, read from its contents. */
+    private static byte storedType(String UID) {
+        // Chunks are the only objects stored without a codec header
+        byte type = Codec.typeOf(ObjectStore.readBytes(UID));
+        return type == 0 ? CHUNK : type;
+    }
+
+    /** Write RECORDS as the sorted file, replacing the previous one. */
+    private static void writeSorted(TreeMap<String, Byte> records) {
+        int[] counts = new int[256];
+        for (String UID : records.keySet()) {
+            counts[Integer.parseInt(UID.substring(0, 2), 16)] += 1;
+        }
+        File temp = join(Repository.GITLET_DIR, "object-index.tmp");
+        try (FileOutputStream file = new FileOutputStream(temp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+            int total = 0;
+            for (int c : counts) {
+                total += c;
+                out.writeInt(total);
+            }
+            for (Map.Entry<String, Byte> entry : records.entrySet()) {
+                out.write(ObjectStore.fromHex(entry.getKey()));
+                out.write(entry.getValue());
+            }
+            // The log is emptied once the sorted file replaces it, so the file must be whole
+            out.flush();
+            file.getFD().sync();
+        } catch (IOException excp) {
+            throw error("Cannot write object index: %s", excp.getMessage());
+        }
+        if (!temp.renameTo(INDEX_FILE)) {
+            throw error("Cannot replace object index.");
+        }
+    }
+}
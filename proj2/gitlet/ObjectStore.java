@@ -0,0 +1,487 @@
+package gitlet;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+import static gitlet.Utils.*;
+
+/** The object database of a gitlet repository.
+ *  Objects are stored in the compact binary format of Codec.
+ *  New blobs and commits are written loose, one file per object in OBJECT_DIR. The repack
+ *  command moves them into a single append-only pack file, addressed through a sorted index
+ *  of SHA-1 IDs, so that reading a packed object costs one index probe and one positioned read.
+ *
+ *  The index file starts with a fan-out table of 256 ints, where entry i is the number of
+ *  objects whose first ID byte is at most i, followed by one fixed-size record per object:
+ *  the raw 20-byte ID, the 8-byte offset in the pack file and the 4-byte length.
+ *
+ *  The collect command rewrites the pack with only the objects still in use. Unreachable
+ *  packed objects are dropped only once the pack is older than the grace period; until then
+ *  they are written back loose with the pack's modification time, as git explodes them, so
+ *  that they age out like any other loose object. The new pack
+ *  and index are written next to the current ones and renamed over them, the pack first,
+ *  so a collection interrupted before that rename is dropped and one interrupted after it is
+ *  finished when the pack is next opened.
+ *
+ *  Objects may be read and written from several threads at once, so every use of the
+ *  opened pack files is synchronized.
+ *  @author Ethan
+ */
+public class ObjectStore {
+    /** The pack directory, which stores packed objects and their index. */
+    public static final File PACK_DIR = join(Repository.GITLET_DIR, "pack");
+    /** The append-only file holding the contents of every packed object. */
+    public static final File PACK_FILE = join(PACK_DIR, "objects.pack");
+    /** The sorted index of every object in PACK_FILE. */
+    public static final File PACK_INDEX = join(PACK_DIR, "objects.idx");
+    /** The pack and index being written by collect() to replace the current ones. */
+    private static final File NEW_PACK_FILE = join(PACK_DIR, "objects.pack.new");
+    private static final File NEW_PACK_INDEX = join(PACK_DIR, "objects.idx.new");
+
+    /** Size in bytes of a raw SHA-1 ID. */
+    static final int ID_BYTES = UID_LENGTH / 2;
+    /** Size in bytes of the fan-out table at the head of the index. */
+    private static final int FANOUT_BYTES = 256 * 4;
+    /** Size in bytes of a single index record. */
+    private static final int RECORD_BYTES = ID_BYTES + 8 + 4;
+
+    /** The most encoded bytes of decoded objects kept by the object cache. */
+    private static final long CACHE_BYTES = 32 << 20;
+    private static final ObjectCache CACHE = new ObjectCache(CACHE_BYTES);
+
+    /** The opened index and pack files, or null until the first packed read. */
+    private static RandomAccessFile index;
+    private static RandomAccessFile pack;
+    private static int[] fanout;
+
+    /** Return the object with the given UID, casting it to EXPECTEDCLASS. The object may
+     *  be shared with other readers, so it must not be changed. */
+    public static <T> T readObject(String UID, Class<T> expectedClass) {
+        Object obj = CACHE.get(UID);
+        if (obj == null) {
+            byte[] contents = readBytes(UID);
+            obj = Codec.decode(contents, expectedClass);
+            CACHE.put(UID, obj, contents.length);
+        }
+        try {
+            return expectedClass.cast(obj);
+        } catch (ClassCastException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Print the counters of the object cache. */
+    public static void stats() {
+        long[] stats = CACHE.stats();
+        System.out.println("=== Object Cache ===");
+        System.out.println("hits: " + stats[0]);
+        System.out.println("misses: " + stats[1]);
+        System.out.println("evictions: " + stats[2]);
+        System.out.println("objects: " + stats[3]);
+        System.out.println("bytes: " + stats[4] + " of " + stats[5]);
+        System.out.println();
+    }
+
+    /** Write OBJ as the object with the given UID, unless that object is already stored. */
+    public static void writeObject(String UID, Object obj) {
+        if (!contains(UID)) {
+            writeBytes(UID, Codec.encode(obj), Codec.typeOf(obj));
+        }
+    }
+
+    /** Write CONTENTS as the object with the given UID and TYPE, unless that object
+     *  is already stored. The object file is renamed into place, so a crash never leaves a
+     *  partial object, and it is synced before the refs that may point to it. */
+    public static void writeBytes(String UID, byte[] contents, byte type) {
+        if (!contains(UID)) {
+            File loose = join(Repository.OBJECT_DIR, UID);
+            Journal.replace(loose, contents);
+            Journal.written(loose);
+            ObjectIndex.add(UID, type);
+        }
+    }
+
+    /** Return the time the object with the given UID was last written, which is when the
+     *  pack was for a packed object. */
+    public static long lastWritten(String UID) {
+        File loose = join(Repository.OBJECT_DIR, UID);
+        return loose.exists() ? loose.lastModified() : PACK_FILE.lastModified();
+    }
+
+    /** Return true if the object with the given UID is stored loose or packed. */
+    public static boolean contains(String UID) {
+        return join(Repository.OBJECT_DIR, UID).exists() || findPacked(UID) >= 0;
+    }
+
+    /** Return the IDs of all stored objects, loose or packed, in lexicographic order. */
+    public static List<String> objectIDs() {
+        TreeSet<String> IDs = new TreeSet<>(looseIDs());
+        int count = packedCount();
+        for (int i = 0; i < count; i++) {
+            IDs.add(toHex(readPackedID(i)));
+        }
+        return new ArrayList<>(IDs);
+    }
+
+    /** Return the stored contents of the object with the given UID. */
+    public static byte[] readBytes(String UID) {
+        File loose = join(Repository.OBJECT_DIR, UID);
+        if (loose.exists()) {
+            return readContents(loose);
+        }
+        synchronized (ObjectStore.class) {
+            long[] location = locatePacked(UID);
+            try {
+                byte[] contents = new byte[(int) location[1]];
+                pack.seek(location[0]);
+                pack.readFully(contents);
+                return contents;
+            } catch (IOException excp) {
+                throw error("Cannot read packed object %s.", UID);
+            }
+        }
+    }
+
+    /** Return the first byte of the object with the given UID. */
+    public static byte readHeader(String UID) {
+        File loose = join(Repository.OBJECT_DIR, UID);
+        try {
+            if (loose.exists()) {
+                try (FileInputStream in = new FileInputStream(loose)) {
+                    return (byte) in.read();
+                }
+            }
+            synchronized (ObjectStore.class) {
+                pack.seek(locatePacked(UID)[0]);
+                return pack.readByte();
+            }
+        } catch (IOException excp) {
+            throw error("Cannot read object %s.", UID);
+        }
+    }
+
+    /** Transfer the contents of the object with the given UID, from byte POSITION onwards,
+     *  to TARGET. The bytes go from the loose or pack file to TARGET without being copied
+     *  through the Java heap. */
+    public static void transferTo(String UID, long position, WritableByteChannel target) {
+        File loose = join(Repository.OBJECT_DIR, UID);
+        try {
+            if (loose.exists()) {
+                try (FileChannel in = FileChannel.open(loose.toPath())) {
+                    transferFully(in, position, in.size() - position, target);
+                }
+            } else {
+                long[] location = locatePacked(UID);
+                transferFully(pack.getChannel(), location[0] + position, location[1] - position, target);
+            }
+        } catch (IOException excp) {
+            throw error("Cannot read object %s.", UID);
+        }
+    }
+
+    /** Transfer COUNT bytes of IN starting at POSITION to TARGET. */
+    private static void transferFully(FileChannel in, long position, long count,
+                                      WritableByteChannel target) throws IOException {
+        while (count > 0) {
+            long transferred = in.transferTo(position, count, target);
+            position += transferred;
+            count -= transferred;
+        }
+    }
+
+    /** Return the offset and length in the pack of the packed object with the given UID. */
+    private static synchronized long[] locatePacked(String UID) {
+        int i = findPacked(UID);
+        if (i < 0) {
+            throw error("No object with ID %s.", UID);
+        }
+        try {
+            index.seek(FANOUT_BYTES + (long) i * RECORD_BYTES + ID_BYTES);
+            return new long[] {index.readLong(), index.readInt()};
+        } catch (IOException excp) {
+            throw error("Cannot read pack index.");
+        }
+    }
+
+    /** Return the IDs of the loose objects, leaving out temporary files left by a crash. */
+    private static List<String> looseIDs() {
+        List<String> IDs = new ArrayList<>();
+        for (String name : plainFilenamesIn(Repository.OBJECT_DIR)) {
+            if (name.length() == 2 * ID_BYTES) {
+                IDs.add(name);
+            }
+        }
+        return IDs;
+    }
+
+    /** Move every loose object into the pack, then rewrite the index to cover all of them. */
+    public static void repack() {
+        List<String> loose = looseIDs();
+        if (loose.isEmpty()) {
+            return;
+        }
+        if (!PACK_DIR.exists() && !PACK_DIR.mkdir()) {
+            throw new java.lang.Error("Cannot create pack directory");
+        }
+
+        // Keep the records of previously packed objects, then append the loose ones
+        TreeMap<String, long[]> records = new TreeMap<>();
+        int count = packedCount();
+        try {
+            for (int i = 0; i < count; i++) {
+                index.seek(FANOUT_BYTES + (long) i * RECORD_BYTES);
+                byte[] ID = new byte[ID_BYTES];
+                index.readFully(ID);
+                records.put(toHex(ID), new long[] {index.readLong(), index.readInt()});
+            }
+            closePack();
+
+            try (RandomAccessFile out = new RandomAccessFile(PACK_FILE, "rw")) {
+                long offset = out.length();
+                out.seek(offset);
+                for (String UID : loose) {
+                    if (records.containsKey(UID)) {
+                        continue;
+                    }
+                    byte[] contents = readContents(join(Repository.OBJECT_DIR, UID));
+                    out.write(contents);
+                    records.put(UID, new long[] {offset, contents.length});
+                    offset += contents.length;
+                }
+                out.getFD().sync();
+            }
+            writeIndex(records);
+        } catch (IOException excp) {
+            throw error("Cannot repack objects: %s", excp.getMessage());
+        }
+
+        // The pack now holds every object, so the loose copies can go
+        for (String UID : loose) {
+            deleteFile(join(Repository.OBJECT_DIR, UID));
+        }
+        ObjectIndex.compact();
+    }
+
+    /** Remove every object that is not in REACHABLE, except objects last written at or after
+     *  CUTOFF, which may belong to a command still running, and the objects in RECENT, which
+     *  such objects refer to. A packed object counts as written when the pack was. The
+     *  remaining objects that are not reachable stay or are put loose, and every other object
+     *  ends up in a rewritten pack. Returns the IDs of the removed objects. */
+    public static Set<String> collect(Set<String> reachable, Set<String> recent, long cutoff) {
+        if (!PACK_DIR.exists() && !PACK_DIR.mkdir()) {
+            throw new java.lang.Error("Cannot create pack directory");
+        }
+        Set<String> removed = new TreeSet<>();
+        List<String> loose = looseIDs();
+        List<String> pruned = new ArrayList<>();
+        TreeMap<String, long[]> records = new TreeMap<>();
+        int count = packedCount();
+        long packTime = PACK_FILE.lastModified();
+        try (RandomAccessFile out = new RandomAccessFile(NEW_PACK_FILE, "rw")) {
+            out.setLength(0);
+            long offset = 0;
+            for (int i = 0; i < count; i++) {
+                String UID = toHex(readPackedID(i));
+                if (!reachable.contains(UID)) {
+                    if (packTime < cutoff && !recent.contains(UID)) {
+                        removed.add(UID);
+                    } else {
+                        explode(UID, packTime);
+                    }
+                    continue;
+                }
+                byte[] contents = readBytes(UID);
+                out.write(contents);
+                records.put(UID, new long[] {offset, contents.length});
+                offset += contents.length;
+            }
+            for (String UID : loose) {
+                File file = join(Repository.OBJECT_DIR, UID);
+                if (!reachable.contains(UID)) {
+                    if (file.lastModified() < cutoff && !recent.contains(UID)) {
+                        removed.add(UID);
+                        pruned.add(UID);
+                    } else {
+                        removed.remove(UID);
+                    }
+                    continue;
+                }
+                pruned.add(UID);
+                if (records.containsKey(UID)) {
+                    continue;
+                }
+                byte[] contents = readContents(file);
+                out.write(contents);
+                records.put(UID, new long[] {offset, contents.length});
+                offset += contents.length;
+            }
+            out.getFD().sync();
+            writeIndex(records, NEW_PACK_INDEX);
+
+            closePack();
+            Files.move(NEW_PACK_FILE.toPath(), PACK_FILE.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            Files.move(NEW_PACK_INDEX.toPath(), PACK_INDEX.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException excp) {
+            throw error("Cannot collect objects: %s", excp.getMessage());
+        }
+
+        // The loose objects are now packed or garbage, and so are temporary files left by a crash
+        pruned.parallelStream().forEach(UID -> join(Repository.OBJECT_DIR, UID).delete());
+        for (String name : plainFilenamesIn(Repository.OBJECT_DIR)) {
+            File file = join(Repository.OBJECT_DIR, name);
+            if (name.length() != 2 * ID_BYTES && file.lastModified() < cutoff) {
+                file.delete();
+            }
+        }
+        return removed;
+    }
+
+    /** Keep the packed object UID as a loose object last written no earlier than PACKTIME,
+     *  the modification time of the pack, so that collect() spares it until the pack itself
+     *  would have aged out. The object is unreachable, so it is not synced. */
+    private static void explode(String UID, long packTime) {
+        File file = join(Repository.OBJECT_DIR, UID);
+        if (!file.exists()) {
+            Journal.replace(file, readBytes(UID));
+        }
+        if (file.lastModified() < packTime && !file.setLastModified(packTime)) {
+            throw error("Cannot keep object %s.", UID);
+        }
+    }
+
+    /** Write the index for RECORDS to a temporary file and move it over PACK_INDEX. */
+    private static void writeIndex(TreeMap<String, long[]> records) throws IOException {
+        File temp = join(PACK_DIR, "objects.idx.tmp");
+        writeIndex(records, temp);
+        if (!temp.renameTo(PACK_INDEX)) {
+            throw error("Cannot replace pack index.");
+        }
+    }
+
+    /** Write the index for RECORDS to TARGET and sync it. */
+    private static void writeIndex(TreeMap<String, long[]> records, File target) throws IOException {
+        int[] counts = new int[256];
+        for (String UID : records.keySet()) {
+            counts[Integer.parseInt(UID.substring(0, 2), 16)] += 1;
+        }
+        try (FileOutputStream file = new FileOutputStream(target);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+            int total = 0;
+            for (int c : counts) {
+                total += c;
+                out.writeInt(total);
+            }
+            for (Map.Entry<String, long[]> entry : records.entrySet()) {
+                out.write(fromHex(entry.getKey()));
+                out.writeLong(entry.getValue()[0]);
+                out.writeInt((int) entry.getValue()[1]);
+            }
+            out.flush();
+            file.getFD().sync();
+        }
+    }
+
+    /** Return the position of UID in the pack index, or -1 if it is not packed. */
+    private static synchronized int findPacked(String UID) {
+        if (UID.length() != UID_LENGTH || packedCount() == 0) {
+            return -1;
+        }
+        byte[] target = fromHex(UID);
+        int first = target[0] & 0xff;
+        int lo = first == 0 ? 0 : fanout[first - 1];
+        int hi = fanout[first] - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = Arrays.compareUnsigned(readPackedID(mid), target);
+            if (cmp < 0) {
+                lo = mid + 1;
+            } else if (cmp > 0) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /** Return the raw ID stored at position I of the pack index. */
+    private static synchronized byte[] readPackedID(int i) {
+        try {
+            byte[] ID = new byte[ID_BYTES];
+            index.seek(FANOUT_BYTES + (long) i * RECORD_BYTES);
+            index.readFully(ID);
+            return ID;
+        } catch (IOException excp) {
+            throw error("Cannot read pack index.");
+        }
+    }
+
+    /** Open the pack if it exists and return the number of packed objects. */
+    private static synchronized int packedCount() {
+        if (fanout == null) {
+            if (NEW_PACK_FILE.exists()) {
+                // A collection stopped before replacing the pack, which is still whole
+                NEW_PACK_FILE.delete();
+                NEW_PACK_INDEX.delete();
+            } else if (NEW_PACK_INDEX.exists() && !NEW_PACK_INDEX.renameTo(PACK_INDEX)) {
+                throw error("Cannot finish replacing the pack.");
+            }
+            if (!PACK_INDEX.exists()) {
+                return 0;
+            }
+            try {
+                index = new RandomAccessFile(PACK_INDEX, "r");
+                pack = new RandomAccessFile(PACK_FILE, "r");
+                fanout = new int[256];
+                for (int i = 0; i < 256; i++) {
+                    fanout[i] = index.readInt();
+                }
+            } catch (IOException excp) {
+                throw error("Cannot open pack: %s", excp.getMessage());
+            }
+        }
+        return fanout[255];
+    }
+
+    /** Close the opened pack files, so a pack written by another process is read. */
+    public static void unload() {
+        try {
+            closePack();
+        } catch (IOException excp) {
+            throw error("Cannot close pack: %s", excp.getMessage());
+        }
+    }
+
+    /** Release the opened pack files, so they are reopened on the next packed read. */
+    private static synchronized void closePack() throws IOException {
+        if (fanout != null) {
+            index.close();
+            pack.close();
+            fanout = null;
+        }
+    }
+
+    /** Return the 40-digit hexadecimal form of the raw ID. */
+    static String toHex(byte[] ID) {
+        StringBuilder result = new StringBuilder(UID_LENGTH);
+        for (byte b : ID) {
+            result.append(Character.forDigit((b >> 4) & 0xf, 16));
+            result.append(Character.forDigit(b & 0xf, 16));
+        }
+        return result.toString();
+    }
+
+    /** Return the raw bytes of the hexadecimal UID. */
+    static byte[] fromHex(String UID) {
+        byte[] ID = new byte[UID.length() / 2];
+        for (int i = 0; i < ID.length; i++) {
+            ID[i] = (byte) (Character.digit(UID.charAt(2 * i), 16) << 4
+                            | Character.digit(UID.charAt(2 * i + 1), 16));
+        }
+        return ID;
+    }
+}
@@ -0,0 +1,433 @@
+package gitlet;
+
+import java.io.*;
+import java.util.*;
+
+import static gitlet.Utils.*;
+
+/** The remote commands, which exchange commits with another gitlet repository on the same
+ *  machine.
+ *
+ *  As in git, the other repository is served by a second gitlet process started in its
+ *  directory, running upload-pack to send commits or receive-pack to take them, and the
+ *  two processes talk over the child's standard input and output. The process that serves
+ *  the other repository first advertises its branches. When fetching, the fetching side
+ *  then names the commit it wants and sends the IDs of its own commits in batches, newest
+ *  generation first, and the serving side acknowledges the ones it has. Once a commit is
+ *  acknowledged its ancestors are known to be shared and are never sent. When pushing, the
+ *  advertised branch heads that the pushing side knows are the shared commits.
+ *
+ *  The commits reachable from the wanted commit but not from any shared commit are then
+ *  sent as a single stream: the number of objects, followed by the ID, length and stored
+ *  bytes of each. For each commit, only the trees, blobs and chunks that differ from its
+ *  first parent are included, and every commit follows its parents and its objects, so the
+ *  receiver can store them in order.
+ *  @author Ethan
+ */
+public class Remote {
+    /** The directory of the remote files, each holding the path of a remote .gitlet
+     *  directory. */
+    public static final File REMOTE_DIR = join(Repository.GITLET_DIR, "REMOTE");
+
+    /** The number of commit IDs sent in each batch of haves. */
+    private static final int HAVE_BATCH = 32;
+    /** The number of haves in a row without an acknowledgement after which fetching gives
+     *  up looking for shared commits. */
+    private static final int MAX_UNACKED_HAVES = 256;
+
+    /** Flags used while painting the history in missingCommits. */
+    private static final byte WANTED = 1;
+    private static final byte SHARED = 2;
+
+    public static void addRemote(String name, String path) {
+        File remote = join(REMOTE_DIR, name);
+        if (Journal.exists(remote)) {
+            throw error("A remote with that name already exists.");
+        }
+        Journal.write(remote, path);
+    }
+
+    public static void rmRemote(String name) {
+        File remote = join(REMOTE_DIR, name);
+        if (!Journal.exists(remote)) {
+            throw error("A remote with that name does not exist.");
+        }
+        Journal.delete(remote);
+    }
+
+    /** Copy the commits of the branch BRANCH of the remote NAME that are missing here, and
+     *  point the branch NAME/BRANCH at its head. */
+    public static void fetch(String name, String branch) {
+        Process process = start(remoteDir(name), "upload-pack");
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+            String want = readAdvertisement(in).get(branch);
+            if (want == null) {
+                out.writeInt(0);
+                out.flush();
+                finish(process);
+                throw error("That remote does not have that branch.");
+            }
+            out.writeInt(1);
+            writeID(out, want);
+            negotiate(in, out, want);
+            receive(in);
+            finish(process);
+            Journal.write(join(Repository.BRANCH_DIR, name, branch), want);
+        } catch (IOException excp) {
+            process.destroy();
+            throw error("Cannot fetch from remote: %s", excp.getMessage());
+        }
+    }
+
+    /** Send the commits of the current branch that the remote NAME is missing, and point its
+     *  branch BRANCH at the current head. */
+    public static void push(String name, String branch) {
+        File gitletDir = remoteDir(name);
+        Process process = start(gitletDir, "receive-pack");
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+            Map<String, String> branches = readAdvertisement(in);
+            String head = Repository.getHeadCommitID();
+            String remoteHead = branches.get(branch);
+            if (remoteHead != null && (!ObjectStore.contains(remoteHead)
+                                       || !CommitGraph.isAncestor(remoteHead, head))) {
+                out.close();
+                finish(process);
+                throw error("Please pull down remote changes before pushing.");
+            }
+
+            List<String> shared = new ArrayList<>();
+            for (String commitID : branches.values()) {
+                if (ObjectStore.contains(commitID)) {
+                    shared.add(commitID);
+                }
+            }
+            Daemon.writeString(out, branch);
+            writeID(out, head);
+            send(out, missingCommits(List.of(head), shared));
+            out.close();
+            finish(process);
+        } catch (IOException excp) {
+            process.destroy();
+            throw error("Cannot push to remote: %s", excp.getMessage());
+        }
+    }
+
+    /** Fetch the branch BRANCH of the remote NAME, then merge it into the current branch. */
+    public static void pull(String name, String branch) {
+        fetch(name, branch);
+        Repo.merge(name + "/" + branch);
+    }
+
+    /** Serve a fetch from the standard input and output. */
+    public static void uploadPack() throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(System.in));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(System.out));
+        writeAdvertisement(out);
+        List<String> wants = new ArrayList<>();
+        for (int count = in.readInt(); count > 0; count--) {
+            wants.add(readID(in));
+        }
+        if (wants.isEmpty()) {
+            return;
+        }
+
+        List<String> shared = new ArrayList<>();
+        for (int count = in.readInt(); count > 0; count = in.readInt()) {
+            List<String> acks = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                String commitID = readID(in);
+                if (ObjectStore.contains(commitID)) {
+                    acks.add(commitID);
+                }
+            }
+            out.writeInt(acks.size());
+            for (String commitID : acks) {
+                writeID(out, commitID);
+            }
+            out.flush();
+            shared.addAll(acks);
+        }
+        send(out, missingCommits(wants, shared));
+    }
+
+    /** Serve a push from the standard input and output. */
+    public static void receivePack() throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(System.in));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(System.out));
+        writeAdvertisement(out);
+        String branch;
+        try {
+            branch = Daemon.readString(in);
+        } catch (EOFException excp) {
+            // The pushing side found it cannot push
+            return;
+        }
+        String head = readID(in);
+        receive(in);
+        Journal.write(join(Repository.BRANCH_DIR, branch), head);
+    }
+
+    /** Send the IDs of the commits of this repository to the serving side through OUT, newest
+     *  generation first, until the commits it acknowledges through IN cover the rest. WANT is
+     *  sent first if it is already here, so that nothing is transferred. */
+    private static void negotiate(DataInputStream in, DataOutputStream out, String want) throws IOException {
+        List<Integer> heads = new ArrayList<>();
+        if (ObjectStore.contains(want)) {
+            heads.add(CommitGraph.positionOf(want));
+        }
+        for (String branch : Repository.branchNames()) {
+            heads.add(CommitGraph.positionOf(Journal.readString(join(Repository.BRANCH_DIR, branch))));
+        }
+        boolean[] seen = new boolean[CommitGraph.size()];
+        boolean[] shared = new boolean[CommitGraph.size()];
+        PriorityQueue<Integer> queue =
+            new PriorityQueue<>(Comparator.comparingInt(c -> -CommitGraph.generation(c)));
+        for (int c : heads) {
+            if (!seen[c]) {
+                seen[c] = true;
+                queue.add(c);
+            }
+        }
+
+        int unacked = 0;
+        while (!queue.isEmpty() && unacked < MAX_UNACKED_HAVES) {
+            List<Integer> batch = new ArrayList<>();
+            while (batch.size() < HAVE_BATCH && !queue.isEmpty()) {
+                int c = queue.poll();
+                // The ancestors of a shared commit are shared as well
+                if (shared[c]) {
+                    continue;
+                }
+                batch.add(c);
+                for (int p : new int[] {CommitGraph.firstParent(c), CommitGraph.secondParent(c)}) {
+                    if (p != CommitGraph.NONE && !seen[p]) {
+                        seen[p] = true;
+                        queue.add(p);
+                    }
+                }
+            }
+            if (batch.isEmpty()) {
+                break;
+            }
+            out.writeInt(batch.size());
+            for (int c : batch) {
+                writeID(out, CommitGraph.commitID(c));
+            }
+            out.flush();
+
+            int acks = in.readInt();
+            for (int i = 0; i < acks; i++) {
+                int c = CommitGraph.positionOf(readID(in));
+                shared[c] = true;
+                for (int p : new int[] {CommitGraph.firstParent(c), CommitGraph.secondParent(c)}) {
+                    if (p != CommitGraph.NONE) {
+                        shared[p] = true;
+                    }
+                }
+            }
+            unacked = acks > 0 ? 0 : unacked + batch.size();
+        }
+        out.writeInt(0);
+        out.flush();
+    }
+
+    /** Return the IDs of the commits reachable from WANTS but not from SHARED, parents
+     *  first. The history is painted newest generation first, as in CommitGraph.mergeBase,
+     *  and the walk stops as soon as every commit left to visit is shared. */
+    private static List<String> missingCommits(List<String> wants, List<String> shared) {
+        Painting painting = new Painting();
+        for (String commitID : wants) {
+            painting.paint(CommitGraph.positionOf(commitID), WANTED);
+        }
+        for (String commitID : shared) {
+            painting.paint(CommitGraph.positionOf(commitID), SHARED);
+        }
+
+        List<Integer> missing = new ArrayList<>();
+        while (painting.unshared > 0) {
+            int c = painting.queue.poll();
+            painting.visited[c] = true;
+            byte flag = painting.flags[c];
+            if ((flag & SHARED) == 0) {
+                painting.unshared -= 1;
+                missing.add(c);
+            }
+            for (int p : new int[] {CommitGraph.firstParent(c), CommitGraph.secondParent(c)}) {
+                if (p != CommitGraph.NONE) {
+                    painting.paint(p, flag);
+                }
+            }
+        }
+
+        missing.sort(Comparator.comparingInt(CommitGraph::generation));
+        List<String> result = new ArrayList<>();
+        for (int c : missing) {
+            result.add(CommitGraph.commitID(c));
+        }
+        return result;
+    }
+
+    /** The state of the walk of missingCommits. A commit only gains flags from its
+     *  children, which all have a larger generation and so are visited before it. */
+    private static class Painting {
+        private final byte[] flags = new byte[CommitGraph.size()];
+        private final boolean[] visited = new boolean[CommitGraph.size()];
+        private final PriorityQueue<Integer> queue =
+            new PriorityQueue<>(Comparator.comparingInt(c -> -CommitGraph.generation(c)));
+        /** The number of queued commits that are not shared. */
+        private int unshared;
+
+        /** Add FLAG to the commit at position C, queueing it if it was never queued. */
+        void paint(int c, byte flag) {
+            byte old = flags[c];
+            flags[c] |= flag;
+            if (old == 0) {
+                queue.add(c);
+                if ((flag & SHARED) == 0) {
+                    unshared += 1;
+                }
+            } else if (!visited[c] && (old & SHARED) == 0 && (flag & SHARED) != 0) {
+                unshared -= 1;
+            }
+        }
+    }
+
+    /** Send the objects of COMMITS, which are ordered parents first, through OUT. */
+    private static void send(DataOutputStream out, List<String> commits) throws IOException {
+        LinkedHashSet<String> objects = new LinkedHashSet<>();
+        for (String commitID : commits) {
+            Commit commit = ObjectStore.readObject(commitID, Commit.class);
+            String parent = commit.getParent().get(0);
+            String parentTreeID = parent.isEmpty() ? null
+                                  : ObjectStore.readObject(parent, Commit.class).getTreeID();
+            addChangedObjects(commit.getTreeID(), parentTreeID, objects);
+            objects.add(commitID);
+        }
+        out.writeInt(objects.size());
+        for (String UID : objects) {
+            byte[] contents = ObjectStore.readBytes(UID);
+            writeID(out, UID);
+            out.writeInt(contents.length);
+            out.write(contents);
+        }
+        out.flush();
+    }
+
+    /** Add to OBJECTS the tree TREEID and every object below it that is not at the same
+     *  path in the tree OLDTREEID, which may be null. */
+    private static void addChangedObjects(String treeID, String oldTreeID, Set<String> objects) {
+        if (treeID.equals(oldTreeID) || !objects.add(treeID)) {
+            return;
+        }
+        Map<String, String> oldEntries = oldTreeID == null ? Map.of()
+                                         : ObjectStore.readObject(oldTreeID, Tree.class).getEntries();
+        for (Map.Entry<String, String> entry : ObjectStore.readObject(treeID, Tree.class).getEntries().entrySet()) {
+            String oldID = oldEntries.get(entry.getKey());
+            if (entry.getValue().equals(oldID)) {
+                continue;
+            }
+            if (Tree.isDirectory(entry.getKey())) {
+                addChangedObjects(entry.getValue(), oldID, objects);
+            } else if (objects.add(entry.getValue())) {
+                objects.addAll(ObjectStore.readObject(entry.getValue(), Blob.class).getChunks());
+            }
+        }
+    }
+
+    /** Store every object read from IN that is not stored yet, recording commits in the
+     *  commit graph and catalog. */
+    private static void receive(DataInputStream in) throws IOException {
+        for (int count = in.readInt(); count > 0; count--) {
+            String UID = readID(in);
+            byte[] contents = new byte[in.readInt()];
+            in.readFully(contents);
+            if (ObjectStore.contains(UID)) {
+                continue;
+            }
+            // Chunks are the only objects stored without a codec header
+            byte type = Codec.typeOf(contents);
+            ObjectStore.writeBytes(UID, contents, type == 0 ? ObjectIndex.CHUNK : type);
+            if (type == ObjectIndex.COMMIT) {
+                Commit commit = Codec.decode(contents, Commit.class);
+                CommitGraph.add(UID, commit.getParent());
+                CommitCatalog.add(UID, commit);
+            }
+        }
+    }
+
+    /** Return the .gitlet directory of the remote NAME. */
+    private static File remoteDir(String name) {
+        File remote = join(REMOTE_DIR, name);
+        if (!Journal.exists(remote)) {
+            throw error("A remote with that name does not exist.");
+        }
+        File gitletDir = new File(Journal.readString(remote).replace("/", File.separator));
+        if (!gitletDir.isAbsolute()) {
+            gitletDir = join(Repository.CWD, gitletDir.getPath());
+        }
+        if (!gitletDir.isDirectory()) {
+            throw error("Remote directory not found.");
+        }
+        return gitletDir;
+    }
+
+    /** Start gitlet running COMMAND in the repository of the .gitlet directory GITLETDIR. */
+    private static Process start(File gitletDir, String command) {
+        String java = ProcessHandle.current().info().command()
+                          .orElse(join(System.getProperty("java.home"), "bin", "java").getPath());
+        try {
+            return new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), "gitlet.Main", command)
+                .directory(gitletDir.getAbsoluteFile().getParentFile())
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        } catch (IOException excp) {
+            throw error("Cannot start remote: %s", excp.getMessage());
+        }
+    }
+
+    /** Wait for the remote PROCESS to exit. */
+    private static void finish(Process process) {
+        try {
+            if (process.waitFor() != 0) {
+                throw error("The remote failed.");
+            }
+        } catch (InterruptedException excp) {
+            throw error("Interrupted while waiting for the remote.");
+        }
+    }
+
+    /** Write the name and head of every branch to OUT. */
+    private static void writeAdvertisement(DataOutputStream out) throws IOException {
+        List<String> branches = Repository.branchNames();
+        out.writeInt(branches.size());
+        for (String branch : branches) {
+            Daemon.writeString(out, branch);
+            writeID(out, Journal.readString(join(Repository.BRANCH_DIR, branch)));
+        }
+        out.flush();
+    }
+
+    /** Return the heads of the branches advertised through IN by name. */
+    private static Map<String, String> readAdvertisement(DataInputStream in) throws IOException {
+        Map<String, String> branches = new TreeMap<>();
+        for (int count = in.readInt(); count > 0; count--) {
+            String branch = Daemon.readString(in);
+            branches.put(branch, readID(in));
+        }
+        return branches;
+    }
+
+    private static void writeID(DataOutputStream out, String UID) throws IOException {
+        out.write(ObjectStore.fromHex(UID));
+    }
+
+    private static String readID(DataInputStream in) throws IOException {
+        byte[] ID = new byte[ObjectStore.ID_BYTES];
+        in.readFully(ID);
+        return ObjectStore.toHex(ID);
+    }
+}
@@ -1,32 +1,36 @@
 package gitlet;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 import static gitlet.Utils.*;
 
 public class Repo extends Repository {
     /** This function get the file content tracked by the specific commit and add to the current directory. */
-    public static void replaceFileWithCommitID(String commitID, String filename) {
-        TreeMap<String, String> tree = getCommitTreeWithCommitID(commitID);
-        if (!tree.containsKey(filename)) {
-            System.out.println("File does not exist in that commit.");
-            System.exit(0);
+    public static void replaceFileWithCommitID(String commitID, String path) {
+        String filename = normalizePath(path);
+        String blobUID = Tree.lookup(ObjectStore.readObject(commitID, Commit.class).getTreeID(), filename);
+        if (blobUID == null) {
+            throw error("File does not exist in that commit.");
         }
-        String blobUID = tree.get(filename);
-        Blob blob = readObject(join(OBJECT_DIR, blobUID), Blob.class);
-        writeContents(join(CWD, filename), blob.getContent());
+        Blob blob = ObjectStore.readObject(blobUID, Blob.class);
+        blob.writeTo(join(CWD, filename));
+        StatCache.record(filename, blobUID);
     }
 
-    /** A tracked file is defined as being tracked by the current commit tree and have the exact same content. */
-    public static boolean untrackedFileExist(Set<String> filesSet, String checkoutCommitID) {
+    /** Return true if a working file untracked by the current commit would be overwritten by
+     *  checking out the commit CHECKOUTCOMMITID. Only the files the checkout adds are looked at. */
+    public static boolean untrackedFileExist(String checkoutCommitID) {
         String HEAD = getHeadCommitID();
-        TreeMap<String, String> latestCommitTree = getCommitTreeWithCommitID(HEAD);
-        TreeMap<String, String> checkoutCommitTree = getCommitTreeWithCommitID(checkoutCommitID);
+        String latestTreeID = ObjectStore.readObject(HEAD, Commit.class).getTreeID();
+        String checkoutTreeID = ObjectStore.readObject(checkoutCommitID, Commit.class).getTreeID();
 
-        for (String file : filesSet) {
-            if (filesToBeIgnored.contains(file)) continue;
-            if (!latestCommitTree.containsKey(file) && checkoutCommitTree.containsKey(file)) {
+        for (TreeDiff diff = TreeDiff.between(latestTreeID, checkoutTreeID); diff.hasNext(); ) {
+            TreeDiff.Change change = diff.next();
+            if (WorkingTree.isIgnored(change.getPath(), false)) continue;
+            if (change.getKind() == TreeDiff.Kind.ADDED && join(CWD, change.getPath()).isFile()) {
                 return true;
             }
         }
@@ -36,43 +40,37 @@ public class Repo extends Repository {
     /** Add or overwritten files in the current directory from the checkout commit,
      * and delete files that are not in the checkout commit */
     public static void checkoutToSpecificCommitID(String checkoutCommitID, String checkoutBranch) {
-        List<String> files = plainFilenamesIn(CWD);
-        Set<String> filesSet = new HashSet<>(files);
-
         // Find if there is any untracked file that would be overwritten or deleted by the checkout
-        if (untrackedFileExist(filesSet, checkoutCommitID)) {
-            System.out.println("There is an untracked file in the way; delete it, or add and commit it first.");
-            System.exit(0);
+        if (untrackedFileExist(checkoutCommitID)) {
+            throw error("There is an untracked file in the way; delete it, or add and commit it first.");
         }
 
         String HEAD = getHeadCommitID();
-        TreeMap<String, String> currentCommitTree = getCommitTreeWithCommitID(HEAD);
-        TreeMap<String, String> checkoutCommitTree = getCommitTreeWithCommitID(checkoutCommitID);
-        Stage stage = readObject(TREE_DIR, Stage.class);
-
-        // Delete files that exist in the current branch but not exist in the checked-out branch
-        for (String file : filesSet) {
-            if (filesToBeIgnored.contains(file)) continue;
-            if (currentCommitTree.containsKey(file) && !checkoutCommitTree.containsKey(file)) {
-                deleteFile(join(CWD, file));
-            }
-        }
+        String currentTreeID = ObjectStore.readObject(HEAD, Commit.class).getTreeID();
+        String checkoutTreeID = ObjectStore.readObject(checkoutCommitID, Commit.class).getTreeID();
+        Stage stage = readStage();
 
-        // Takes all files in the commit at the head of the given branch, and puts them in the working directory
-        for (Map.Entry<String, String> entry : checkoutCommitTree.entrySet()) {
-            String branchFilename = entry.getKey();
-            String branchBlobUID = entry.getValue();
-            Blob blob = readObject(join(OBJECT_DIR, branchBlobUID), Blob.class);
-            writeContents(join(CWD, branchFilename), blob.getContent());
+        /* Compare the checked-out tree with the working directory: files it tracks that are missing or
+        different are written, and files tracked in the current branch that it does not track are deleted.
+         */
+        Checkout plan = new Checkout();
+        for (TreeDiff diff = TreeDiff.againstWorkingTree(checkoutTreeID); diff.hasNext(); ) {
+            TreeDiff.Change change = diff.next();
+            if (change.getKind() != TreeDiff.Kind.ADDED) {
+                plan.write(change.getPath(), change.getOldID());
+            } else if (Tree.lookup(currentTreeID, change.getPath()) != null) {
+                plan.delete(change.getPath());
+            }
         }
+        plan.run();
 
         // Update the current branch (point head to the checked-out branch)
-        writeContents(HEAD_DIR, checkoutBranch);
-        writeContents(join(BRANCH_DIR, checkoutBranch), checkoutCommitID);
+        Journal.write(HEAD_DIR, checkoutBranch);
+        Journal.write(join(BRANCH_DIR, checkoutBranch), checkoutCommitID);
 
         // Store the stage status
         stage.initialize();
-        writeObject(TREE_DIR, stage);
+        writeStage(stage);
     }
 
     public static void checkout(String filename, String commitID, String branch) {
@@ -82,21 +80,15 @@ public class Repo extends Repository {
             version of the file is not staged.
              */
             if (commitID.length() > 40) {
-                System.out.println("Commit ID should not be longer than 40 digits");
-                System.exit(0);
+                throw error("Commit ID should not be longer than 40 digits");
             }
-            List<String> fileList = plainFilenamesIn(OBJECT_DIR);
-
             // Since we may not get the whole commit ID from the user,
-            // we have to iterate the list to find the one matched with the input.
-            for (String file : fileList) {
-                if (file.contains(commitID)) {
-                    replaceFileWithCommitID(file, filename);
-                    return;
-                }
+            // we look up the first commit whose ID starts with the input.
+            String fullCommitID = ObjectIndex.resolve(commitID, ObjectIndex.COMMIT);
+            if (fullCommitID == null) {
+                throw error("No commit with that id exists.");
             }
-            System.out.println("No commit with that id exists.");
-            System.exit(0);
+            replaceFileWithCommitID(fullCommitID, filename);
 
         } else if (branch != null) {
             /* Takes all files in the commit at the head of the given branch, and puts them in the working
@@ -106,18 +98,16 @@ public class Repo extends Repository {
             area is cleared, unless the checked-out branch is the current branch.
              */
             File branchPath = join(BRANCH_DIR, branch);
-            if (!branchPath.exists()) {
-                System.out.println("No such branch exists.");
-                System.exit(0);
+            if (!Journal.exists(branchPath)) {
+                throw error("No such branch exists.");
             }
-            String currentBranch = readContentsAsString(HEAD_DIR);
+            String currentBranch = Journal.readString(HEAD_DIR);
             if (Objects.equals(branch, currentBranch)) {
-                System.out.println("No need to checkout the current branch.");
-                System.exit(0);
+                throw error("No need to checkout the current branch.");
             }
 
             // Retrieve the latest commit of the specified branch
-            String branchCommitID = readContentsAsString(branchPath);
+            String branchCommitID = Journal.readString(branchPath);
             checkoutToSpecificCommitID(branchCommitID, branch);
 
         } else {
@@ -132,147 +122,96 @@ public class Repo extends Repository {
 
     public static void reset(String commitID) {
         if (commitID.length() > 40) {
-            System.out.println("Commit ID should not be longer than 40 digits");
-            System.exit(0);
+            throw error("Commit ID should not be longer than 40 digits");
         }
-        List<String> commitIDHistoryList = plainFilenamesIn(OBJECT_DIR);
-        for (String commitIDHistory : commitIDHistoryList) {
-            if (commitIDHistory.contains(commitID)) {
-                String currentBranch = readContentsAsString(HEAD_DIR);
-                checkoutToSpecificCommitID(commitIDHistory, currentBranch);
-                return;
-            }
-        }
-        System.out.println("No commit with that id exists.");
-        System.exit(0);
-    }
-
-    /*public static String findSplitCommit(String commitID1, String commitID2) {
-        Queue<String> parent1 = new LinkedList<>(List.of(commitID1));
-        Queue<String> parent2 = new LinkedList<>(List.of(commitID2));
-
-        while (!parent1.isEmpty()) {
-            if (parent1.peek().length() == 0) {
-                parent1.remove();
-                continue;
-            }
-            while (!parent2.isEmpty()) {
-                if (parent2.peek().length() == 0) {
-                    parent2.remove();
-                    continue;
-                }
-                if (Objects.equals(parent1.peek(), parent2.peek())) {
-                    return parent1.peek();
-                }
-                Commit branchCommit = readObject(join(OBJECT_DIR, parent2.peek()), Commit.class);
-                parent2.addAll(branchCommit.getParent());
-                parent2.remove();
-            }
-            Commit branchCommit = readObject(join(OBJECT_DIR, parent1.peek()), Commit.class);
-            parent1.addAll(branchCommit.getParent());
-            parent1.remove();
-            parent2 = new LinkedList<>(List.of(commitID2));
-        }
-        return null;
-    }*/
-
-    public static void loadParent(String commitID, HashSet<String> allParents) {
-        if (commitID.length() == 0) {
-            return;
-        }
-        allParents.add(commitID);
-        Commit commit = readObject(join(OBJECT_DIR, commitID), Commit.class);
-        ArrayList<String> parents = commit.getParent();
-        for (String p : parents) {
-            loadParent(p, allParents);
+        String fullCommitID = ObjectIndex.resolve(commitID, ObjectIndex.COMMIT);
+        if (fullCommitID == null) {
+            throw error("No commit with that id exists.");
         }
+        String currentBranch = Journal.readString(HEAD_DIR);
+        checkoutToSpecificCommitID(fullCommitID, currentBranch);
     }
 
     /** Find the closest shared parent from two commits */
     public static String findSplitCommit(String commitID1, String commitID2) {
-        Queue<String> parent1 = new LinkedList<>(List.of(commitID1));
-        HashSet<String> parent2 = new HashSet<>();
-        loadParent(commitID2, parent2);
-
-        if (parent2.contains(parent1.peek())) {
-            return parent1.peek();
-        }
-
-        while (!parent1.isEmpty()) {
-            if (parent1.peek().length() == 0) {
-                parent1.remove();
-                continue;
-            }
-            Commit branchCommit = readObject(join(OBJECT_DIR, parent1.peek()), Commit.class);
-            ArrayList<String> parents = branchCommit.getParent();
-            String p1 = parents.get(0);
-            if (parent2.contains(p1)) {
-                return p1;
-            } else {
-                parent1.add(p1);
-            }
-            if (parents.size() > 1) {
-                String p2 = parents.get(1);
-                if (parent2.contains(p2)) {
-                    return p2;
-                } else {
-                    parent1.add(p2);
-                }
-            }
-            parent1.remove();
-        }
-        return null;
+        return CommitGraph.mergeBase(commitID1, commitID2);
     }
 
-    /** Solve merge conflict files by keeping contents in both files */
-    public static String solveMergeConflict(String filename, String currentBlobUID, String branchBlobUID) {
-        String currentContent = "";
-        String branchContent = "";
+    /** Merge the versions of a file changed in different ways by both branches, writing
+     *  the result to the working file and returning its blob ID. If the file exists in the
+     *  split commit and both branches, the versions are merged line by line and only the
+     *  hunks changed differently on both sides are marked as conflicts; otherwise the whole
+     *  of both versions is kept. Prints a message if any conflict is left. */
+    public static String solveMergeConflict(String filename, String splitBlobUID, String currentBlobUID, String branchBlobUID) {
+        byte[] currentContent = new byte[0];
+        byte[] branchContent = new byte[0];
 
         if (currentBlobUID != null)  {
-            Blob currentBlob = readObject(join(OBJECT_DIR, currentBlobUID), Blob.class);
-            currentContent = currentBlob.getContent();
+            Blob currentBlob = ObjectStore.readObject(currentBlobUID, Blob.class);
+            currentContent = currentBlob.getBytes();
         }
         if (branchBlobUID != null) {
-            Blob branchBlob = readObject(join(OBJECT_DIR, branchBlobUID), Blob.class);
-            branchContent = branchBlob.getContent();
+            Blob branchBlob = ObjectStore.readObject(branchBlobUID, Blob.class);
+            branchContent = branchBlob.getBytes();
         }
 
-        String mergeContent = "<<<<<<< HEAD\n" + currentContent + "=======\n" + branchContent + ">>>>>>>\n";
+        byte[] mergeContent;
+        if (splitBlobUID != null && currentBlobUID != null && branchBlobUID != null) {
+            byte[] splitContent = ObjectStore.readObject(splitBlobUID, Blob.class).getBytes();
+            Merge merge = Merge.merge(splitContent, currentContent, branchContent);
+            mergeContent = merge.getContent();
+            if (merge.isConflicted()) {
+                System.out.println("Encountered a merge conflict.");
+            }
+        } else {
+            ByteArrayOutputStream stream = new ByteArrayOutputStream();
+            stream.writeBytes("<<<<<<< HEAD\n".getBytes(StandardCharsets.UTF_8));
+            stream.writeBytes(currentContent);
+            stream.writeBytes("=======\n".getBytes(StandardCharsets.UTF_8));
+            stream.writeBytes(branchContent);
+            stream.writeBytes(">>>>>>>\n".getBytes(StandardCharsets.UTF_8));
+            mergeContent = stream.toByteArray();
+            System.out.println("Encountered a merge conflict.");
+        }
         Blob blob = new Blob(mergeContent);
         String blobUID = blob.Hash();
-        writeObject(join(OBJECT_DIR, blobUID), blob);
-        writeContents(join(CWD, filename), mergeContent);
+        blob.save();
+        blob.writeTo(join(CWD, filename));
+        StatCache.record(filename, blobUID);
 
         return blobUID;
     }
 
+    /** Return the changes from the tree OLDTREEID to the tree NEWTREEID, by path. */
+    private static TreeMap<String, TreeDiff.Change> changesBetween(String oldTreeID, String newTreeID) {
+        TreeMap<String, TreeDiff.Change> changes = new TreeMap<>();
+        for (TreeDiff diff = TreeDiff.between(oldTreeID, newTreeID); diff.hasNext(); ) {
+            TreeDiff.Change change = diff.next();
+            changes.put(change.getPath(), change);
+        }
+        return changes;
+    }
+
     public static void merge(String branch) {
-        Stage stage = readObject(TREE_DIR, Stage.class);
+        Stage stage = readStage();
         if (!stage.empty()) {
-            System.out.println("You have uncommitted changes.");
-            System.exit(0);
+            throw error("You have uncommitted changes.");
         }
         File branchPath = join(BRANCH_DIR, branch);
-        if (!branchPath.exists()) {
-            System.out.println("A branch with that name does not exist.");
-            System.exit(0);
+        if (!Journal.exists(branchPath)) {
+            throw error("A branch with that name does not exist.");
         }
-        String currentBranch = readContentsAsString(HEAD_DIR);
+        String currentBranch = Journal.readString(HEAD_DIR);
         if (Objects.equals(branch, currentBranch)) {
-            System.out.println("Cannot merge a branch with itself.");
-            System.exit(0);
+            throw error("Cannot merge a branch with itself.");
         }
 
-        List<String> files = plainFilenamesIn(CWD);
-        Set<String> filesSet = new HashSet<>(files);
         String currentCommitID = getHeadCommitID();
-        String branchCommitID = readContentsAsString(branchPath);
+        String branchCommitID = Journal.readString(branchPath);
 
         // Find if there is any untracked file that would be overwritten or deleted by the checkout
-        if (untrackedFileExist(filesSet, branchCommitID)) {
-            System.out.println("There is an untracked file in the way; delete it, or add and commit it first.");
-            System.exit(0);
+        if (untrackedFileExist(branchCommitID)) {
+            throw error("There is an untracked file in the way; delete it, or add and commit it first.");
         }
 
         // Find the split commit
@@ -280,117 +219,59 @@ public class Repo extends Repository {
         if (splitCommitID == null) throw new java.lang.Error("Split not found");
 
         if (splitCommitID.equals(branchCommitID)) {
-            System.out.println("Given branch is an ancestor of the current branch.");
-            System.exit(0);
+            throw error("Given branch is an ancestor of the current branch.");
         }
         if (splitCommitID.equals(currentCommitID)) {
-            checkoutToSpecificCommitID(branchCommitID, branch);
+            checkoutToSpecificCommitID(branchCommitID, currentBranch);
             System.out.println("Current branch fast-forwarded.");
             return;
         }
 
-        TreeMap<String, String> currentTree = getCommitTreeWithCommitID(currentCommitID);
-        TreeMap<String, String> branchTree = getCommitTreeWithCommitID(branchCommitID);
-        TreeMap<String, String> splitTree = getCommitTreeWithCommitID(splitCommitID);
+        String currentTreeID = ObjectStore.readObject(currentCommitID, Commit.class).getTreeID();
+        String branchTreeID = ObjectStore.readObject(branchCommitID, Commit.class).getTreeID();
+        String splitTreeID = ObjectStore.readObject(splitCommitID, Commit.class).getTreeID();
+
+        // Only the files changed since the split point in either branch need merging
+        TreeMap<String, TreeDiff.Change> currentChanges = changesBetween(splitTreeID, currentTreeID);
+        TreeMap<String, TreeDiff.Change> branchChanges = changesBetween(splitTreeID, branchTreeID);
 
-        TreeMap<String, String> tree = new TreeMap<>();
+        // The changes to apply to the current tree, where null removes a file
+        TreeMap<String, String> changes = new TreeMap<>();
+        Checkout plan = new Checkout();
 
-        // Conditions when the file is tracked by split
-        for (Map.Entry<String, String> entry : splitTree.entrySet()) {
+        for (Map.Entry<String, TreeDiff.Change> entry : branchChanges.entrySet()) {
             String filename = entry.getKey();
-            String blobUID = entry.getValue();
-            String currentBlobUID = currentTree.get(filename);
-            String branchBlobUID = branchTree.get(filename);
-
-            // modified in other but not head -> other
-            if (Objects.equals(currentBlobUID, blobUID) && !Objects.equals(branchBlobUID, blobUID)) {
-                /* Any files present at the split point, unmodified in the current branch, and absent in the
-                given branch should be removed (and untracked).
+            TreeDiff.Change branchChange = entry.getValue();
+            String blobUID = branchChange.getOldID();
+            String branchBlobUID = branchChange.getNewID();
+            TreeDiff.Change currentChange = currentChanges.get(filename);
+
+            if (currentChange == null) {
+                /* Any files that have been modified in the given branch since the split point, but not
+                modified in the current branch since the split point should be changed to their versions
+                in the given branch, and any such files absent in the given branch should be removed.
+                Files that were not present at the split point and are present only in the given branch
+                are checked out as well.
                  */
                 if (branchBlobUID == null) {
-                    deleteFile(join(CWD, filename));
-                } else {
-                    /* Any files that have been modified in the given branch since the split point, but not
-                    modified in the current branch since the split point should be changed to their versions
-                    in the given branch (checked out from the commit at the front of the given branch).
-                     */
-                    replaceFileWithCommitID(branchCommitID, filename);
-                    tree.put(filename, branchBlobUID);
-                }
-                // modified in head but not other -> head
-            } else if (!Objects.equals(currentBlobUID, blobUID) && Objects.equals(branchBlobUID, blobUID)) {
-                /* Any files present at the split point, unmodified in the given branch, and absent in the
-                current branch should remain absent.
-                 */
-                if (currentBlobUID != null) {
-                    /* Any files that have been modified in the current branch but not in the given branch
-                    since the split point should stay as they are.
-                     */
-                    tree.put(filename, currentBlobUID);
-                }
-                // modified in both
-            } else if (!Objects.equals(currentBlobUID, blobUID) && !Objects.equals(branchBlobUID, blobUID)) {
-                // if the file is not absent in both commit
-                if (!(currentBlobUID == null) || !(branchBlobUID == null)) {
-                    // modified in the same way
-                    if (Objects.equals(currentBlobUID, branchBlobUID)) {
-                        tree.put(filename, currentBlobUID);
-                    } else {
-                        // modified in the different way
-                        System.out.println("Encountered a merge conflict.");
-                        String newBlobUID = solveMergeConflict(filename, currentBlobUID, branchBlobUID);
-                        tree.put(filename, newBlobUID);
-                    }
-                }
-                // nothing changed
-            } else {
-                tree.put(filename, currentBlobUID); // Doesn't matter
-            }
-        }
-
-        // Conditions when the file is not tracked by split
-        /* Any files that were not present at the split point and are present only
-        in the current branch should remain as they are.
-         */
-        for (Map.Entry<String, String> entry : currentTree.entrySet()) {
-            String filename = entry.getKey();
-            String blobUID = entry.getValue();
-            if (!splitTree.containsKey(filename)) {
-                if (branchTree.containsKey(filename)) {
-                    String branchBlobUID = branchTree.get(filename);
-                    if (!Objects.equals(blobUID, branchBlobUID)) {
-                        /* If the file was absent at the split point and has different contents in the
-                        given and current branches, the conflict happens.
-                         */
-                        System.out.println("Encountered a merge conflict.");
-                        String newBlobUID = solveMergeConflict(filename, blobUID, branchBlobUID);
-                        tree.put(filename, newBlobUID);
-                    } else {
-                        /* If the file was absent at the split point and has same contents in the
-                        given and current branches, they remain as they are.
-                         */
-                        tree.put(filename, blobUID);
-                    }
+                    plan.delete(filename);
                 } else {
-                    tree.put(filename, blobUID);
+                    plan.write(filename, branchBlobUID);
                 }
+                changes.put(filename, branchBlobUID);
+            } else if (!Objects.equals(currentChange.getNewID(), branchBlobUID)) {
+                // modified in the different way
+                String newBlobUID = solveMergeConflict(filename, blobUID, currentChange.getNewID(), branchBlobUID);
+                changes.put(filename, newBlobUID);
             }
+            /* Files modified in the same way in both branches, and files modified only in the current
+            branch, stay as they are.
+             */
         }
-
-        /* Any files that were not present at the split point and are present only
-        in the given branch should be checked out and staged.
-         */
-        for (Map.Entry<String, String> entry : branchTree.entrySet()) {
-            String filename = entry.getKey();
-            String blobUID = entry.getValue();
-            if (!splitTree.containsKey(filename) && !currentTree.containsKey(filename)) {
-                replaceFileWithCommitID(branchCommitID, filename);
-                tree.put(filename, blobUID);
-            }
-        }
+        plan.run();
 
         String message = "Merged " + branch + " into " + currentBranch + ".";
         ArrayList<String> parent = new ArrayList<>(Arrays.asList(currentCommitID, branchCommitID));
-        doCommit(message, parent, tree);
+        doCommit(message, parent, Tree.update(currentTreeID, changes));
     }
 }
@@ -1,11 +1,15 @@
 package gitlet;
 
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
 import java.util.*;
 
 import static gitlet.Utils.*;
-import static gitlet.Utils.readContentsAsString;
 
 /** Represents a gitlet repository.
  *  This class contains most of the command that gitlet features.
@@ -22,30 +26,36 @@ public class Repository {
     public static final File HEAD_DIR = join(GITLET_DIR, "HEAD");
     /** The branch directory which contains all branches ID. */
     public static final File BRANCH_DIR = join(GITLET_DIR, "BRANCH");
-    /** The file which store stage information */
+    /** The file which store the snapshot of the stage information, see StageLog */
     public static final File TREE_DIR = join(GITLET_DIR, "TREE");
-    /** Files to be ignored in the current branch */
-    public static final Set<String> filesToBeIgnored = new HashSet<>(Arrays.asList(".DS_Store", "Makefile", "gitlet-design.md", "pom.xml", "test.sh"));
 
-    public static String getHeadCommitID() {
-        String currentBranch = readContentsAsString(HEAD_DIR);
-        return readContentsAsString(join(BRANCH_DIR, currentBranch));
+    /** Return the staging area. A fresh Stage is read every time, so callers may change it
+     *  freely. */
+    public static Stage readStage() {
+        return StageLog.read();
+    }
+
+    /** Store the changes made to STAGE since it was read as the staging area. */
+    public static void writeStage(Stage stage) {
+        StageLog.write(stage);
     }
 
-    public static TreeMap<String, String> getCommitTreeWithCommitID(String commitID) {
-        Commit commit = readObject(join(OBJECT_DIR, commitID), Commit.class);
-        return commit.getTree();
+    public static String getHeadCommitID() {
+        String currentBranch = Journal.readString(HEAD_DIR);
+        return Journal.readString(join(BRANCH_DIR, currentBranch));
     }
 
-    public static void doCommit(String message, ArrayList<String> parent, TreeMap<String, String> tree) {
+    public static void doCommit(String message, ArrayList<String> parent, String tree) {
         // Generate commit object
         Commit commit = new Commit(message, parent, tree);
         String UID = commit.Hash();
-        writeObject(join(OBJECT_DIR, UID), commit);
+        ObjectStore.writeObject(UID, commit);
+        CommitGraph.add(UID, parent);
+        CommitCatalog.add(UID, commit);
 
         // Update HEAD and Master
-        String currentBranch = readContentsAsString(HEAD_DIR);
-        writeContents(join(BRANCH_DIR, currentBranch), UID);
+        String currentBranch = Journal.readString(HEAD_DIR);
+        Journal.write(join(BRANCH_DIR, currentBranch), UID);
     }
 
     public static boolean isInitialized() {
@@ -63,179 +73,282 @@ public class Repository {
             throw new java.lang.Error("Cannot create branch directory");
         }
 
-        writeContents(HEAD_DIR, "master");
+        ObjectIndex.init();
+        CommitGraph.init();
+        CommitCatalog.init();
+        Journal.write(HEAD_DIR, "master");
         Stage stage = new Stage();
-        writeObject(TREE_DIR, stage);
-        doCommit("initial commit", new ArrayList<>(List.of("")), new TreeMap<>());
+        writeStage(stage);
+        doCommit("initial commit", new ArrayList<>(List.of("")), Tree.write(new TreeMap<>()));
     }
 
-    public static void add(String filename) {
-        // Generate glob and store it no matter what
-        File file = join(CWD, filename);
-        if (!file.exists()) {
-            System.out.println("File does not exist.");
-            System.exit(0);
+    /** Return PATH as it is named in trees and the stage: relative to the working directory,
+     *  with "." and ".." segments resolved and "/" separators. PATH need not exist. */
+    static String normalizePath(String path) {
+        String relative = CWD.toPath().relativize(join(CWD, path).toPath().normalize()).toString()
+                          .replace(File.separatorChar, '/');
+        if (relative.startsWith("..")) {
+            throw error("File is outside the repository.");
         }
-        Blob blob = new Blob(file);
-        String blobUID = blob.Hash();
-        writeObject(join(Repository.OBJECT_DIR, blobUID), blob);
+        return relative;
+    }
 
-        // Retrieve previous stage status
-        Stage stage = readObject(TREE_DIR, Stage.class);
-        stage.addAddition(filename, blobUID);
+    /** Expand PATHS into the paths of the files to add, relative to the working directory,
+     *  replacing each directory with every file below it that is not ignored. */
+    private static List<String> expandPaths(List<String> paths) {
+        List<String> filenames = new ArrayList<>();
+        for (String path : paths) {
+            File file = join(CWD, path);
+            if (!file.exists()) {
+                throw error("File does not exist.");
+            }
+            String relative = normalizePath(path);
+            if (file.isDirectory()) {
+                filenames.addAll(WorkingTree.scan(relative.isEmpty() ? "" : relative + "/").files());
+            } else {
+                filenames.add(relative);
+            }
+        }
+        return filenames;
+    }
 
-        // Retrieve the latest commit tree
+    public static void add(List<String> paths) {
+        List<String> filenames = expandPaths(paths);
+        String[] blobUIDs = new String[filenames.size()];
+        long[][] stats = new long[filenames.size()][];
+
+        // Generate blobs and store them, unless the stat cache shows a file is unchanged
+        // and its blob is already stored. The remaining files are hashed and written in parallel.
+        List<Integer> toHash = new ArrayList<>();
+        for (int i = 0; i < filenames.size(); i++) {
+            stats[i] = StatCache.stat(join(CWD, filenames.get(i)));
+            blobUIDs[i] = StatCache.lookup(filenames.get(i), stats[i]);
+            if (blobUIDs[i] == null || !ObjectStore.contains(blobUIDs[i])) {
+                toHash.add(i);
+            }
+        }
+        toHash.parallelStream().forEach(i -> {
+            Blob blob = new Blob(join(CWD, filenames.get(i)), true);
+            blob.save();
+            blobUIDs[i] = blob.Hash();
+        });
+        // The stats were read before hashing, so a file edited since does not match its entry
+        for (int i : toHash) {
+            StatCache.record(filenames.get(i), stats[i], blobUIDs[i]);
+        }
+
+        // Retrieve previous stage status and the latest commit tree once for the whole batch.
+        // Only the trees along each added path are read.
+        Stage stage = readStage();
         String HEAD = getHeadCommitID();
-        TreeMap<String, String> latestCommitTree = getCommitTreeWithCommitID(HEAD);
+        String latestTreeID = ObjectStore.readObject(HEAD, Commit.class).getTreeID();
 
-        // Remove the addition for stage if the status of the file is the same as the tracked status
-        if (Objects.equals(latestCommitTree.get(filename), blobUID)) {
-            stage.removeAddition(filename);
+        for (int i = 0; i < filenames.size(); i++) {
+            String filename = filenames.get(i);
+            stage.addAddition(filename, blobUIDs[i]);
+
+            // Remove the addition for stage if the status of the file is the same as the tracked status
+            if (Objects.equals(Tree.lookup(latestTreeID, filename), blobUIDs[i])) {
+                stage.removeAddition(filename);
+            }
         }
 
         // Store it in staging area
-        writeObject(TREE_DIR, stage);
+        writeStage(stage);
     }
 
     public static void commit(String message) {
         if (message.length() == 0) {
-            System.out.println("Please enter a commit message.");
-            System.exit(0);
+            throw error("Please enter a commit message.");
         }
-        Stage stage = readObject(TREE_DIR, Stage.class);
+        Stage stage = readStage();
         if (stage.empty()) {
-            System.out.println("No changes added to the commit.");
-            System.exit(0);
+            throw error("No changes added to the commit.");
         }
 
-        // Retrieve current addition and removal
-        TreeMap<String, String> additionTree = stage.getAddition();
-        ArrayList<String> removalList = stage.getRemoval();
-        HashSet<String> removalSet = new HashSet<>(removalList);
+        // Retrieve current addition and removal as changes to the latest commit tree
+        TreeMap<String, String> changes = new TreeMap<>(stage.getAddition());
+        for (String filename : stage.getRemoval()) {
+            changes.put(filename, null);
+        }
 
-        // Retrieve the latest commit tree
+        // Retrieve the latest commit, and rewrite only the trees on the changed paths
         String HEAD = getHeadCommitID();
-        TreeMap<String, String> latestCommitTree = getCommitTreeWithCommitID(HEAD);
-
-        // Update current addition
-        if (latestCommitTree != null) {
-            for (Map.Entry<String, String> entry : latestCommitTree.entrySet()) {
-                String filename = entry.getKey();
-                String blobUID = entry.getValue();
-
-                // Link the previous tracked status, ignore it if it is updated in current commit
-                if (!additionTree.containsKey(filename) && !removalSet.contains(filename)) {
-                    additionTree.put(filename, blobUID);
-                }
-            }
-        }
+        Commit latestCommit = ObjectStore.readObject(HEAD, Commit.class);
+        String tree = Tree.update(latestCommit.getTreeID(), changes);
 
         // Create new commit, initialize stage status, and store the stage status
-        doCommit(message, new ArrayList<>(List.of(HEAD)), additionTree);
+        doCommit(message, new ArrayList<>(List.of(HEAD)), tree);
         stage.initialize();
-        writeObject(TREE_DIR, stage);
+        writeStage(stage);
     }
 
-    public static void rm(String filename) {
+    public static void rm(String path) {
+        String filename = normalizePath(path);
         File file = join(CWD, filename);
 
         // Retrieve the latest commit tree and the stage status
-        Stage stage = readObject(TREE_DIR, Stage.class);
+        Stage stage = readStage();
         String HEAD = getHeadCommitID();
-        TreeMap<String, String> latestCommitTree = getCommitTreeWithCommitID(HEAD);
+        String latestTreeID = ObjectStore.readObject(HEAD, Commit.class).getTreeID();
 
         if (stage.exist(filename)) {
             /* Unstage the file if it is currently staged for addition. */
             stage.removeAddition(filename);
-        } else if (latestCommitTree.containsKey(filename)) {
+        } else if (Tree.lookup(latestTreeID, filename) != null) {
             /* If the file is tracked in the current commit, stage it for removal and remove the file from
             the working directory if the user has not already done so
              */
             stage.addRemoval(filename);
             deleteFile(file);
         } else {
-            System.out.println("No reason to remove the file.");
-            System.exit(0);
+            throw error("No reason to remove the file.");
         }
 
         // Store the stage status
-        writeObject(TREE_DIR, stage);
+        writeStage(stage);
     }
 
     public static void printCommitInformation(Commit commit, String commitID){
-        String date = commit.getTimestamp();
-        String message = commit.getMessage();
+        printCommitInformation(System.out, commitID, commit.getParent(), commit.getTimestamp(), commit.getMessage());
+    }
 
-        if (commit.isMerge()) {
-            ArrayList<String> parent = commit.getParent();
+    public static void printCommitInformation(PrintStream out, String commitID, List<String> parent,
+                                              String date, String message) {
+        if (parent.size() > 1) {
             String parent1 = parent.get(0).substring(0, 7);
             String parent2 = parent.get(1).substring(0, 7);
-            System.out.printf("===\ncommit %s\nMerge: %s %s\nDate: %s\n%s\n\n", commitID, parent1, parent2, date, message);
+            out.printf("===\ncommit %s\nMerge: %s %s\nDate: %s\n%s\n\n", commitID, parent1, parent2, date, message);
         } else {
-            System.out.printf("===\ncommit %s\nDate: %s\n%s\n\n", commitID, date, message);
+            out.printf("===\ncommit %s\nDate: %s\n%s\n\n", commitID, date, message);
         }
     }
 
+    /** Return a stream that buffers what is printed to the standard output until it is
+     *  flushed, so long listings are written in large blocks. */
+    private static PrintStream bufferedOutput() {
+        return new PrintStream(new BufferedOutputStream(System.out, 1 << 16), false, StandardCharsets.UTF_8);
+    }
+
     public static void log() {
-        // Retrieve previous commit
-        String HEAD = getHeadCommitID();
+        log(Integer.MAX_VALUE, 0, null);
+    }
 
-        while (HEAD.length() > 0) {
-            Commit commit = readObject(join(OBJECT_DIR, HEAD), Commit.class);
-            printCommitInformation(commit, HEAD);
-            HEAD = commit.getParent().get(0);
+    /** Print at most LIMIT commits of the first-parent history of HEAD, after skipping the
+     *  first SKIP of them and stopping at the first commit made before SINCE, if SINCE is
+     *  not null. Skipped commits are passed over through the commit graph, one parent link
+     *  at a time, without reading their objects; only the printed commits are read. A deep
+     *  page therefore still costs time in proportion to SKIP, on top of loading the graph. */
+    public static void log(int limit, int skip, String since) {
+        long sinceTime = since == null ? Long.MIN_VALUE : parseDate(since);
+        String commitID = getHeadCommitID();
+        if (skip > 0) {
+            int position = CommitGraph.positionOf(commitID);
+            for (int i = 0; i < skip && position != CommitGraph.NONE; i++) {
+                position = CommitGraph.firstParent(position);
+            }
+            commitID = position == CommitGraph.NONE ? null : CommitGraph.commitID(position);
         }
+
+        PrintStream out = bufferedOutput();
+        for (int n = 0; n < limit && commitID != null; n++) {
+            Commit commit = ObjectStore.readObject(commitID, Commit.class);
+            if (sinceTime != Long.MIN_VALUE && parseTimestamp(commit.getTimestamp()) < sinceTime) {
+                break;
+            }
+            printCommitInformation(out, commitID, commit.getParent(), commit.getTimestamp(), commit.getMessage());
+            String parent = commit.getParent().get(0);
+            commitID = parent.isEmpty() ? null : parent;
+        }
+        out.flush();
     }
 
-    public static void globalLog() {
-        List<String> fileList = plainFilenamesIn(OBJECT_DIR);
-        for (String file : fileList) {
+    /** Return the time given by DATE, in the form yyyy-MM-dd or yyyy-MM-dd HH:mm:ss of the
+     *  local time zone, in milliseconds. */
+    private static long parseDate(String date) {
+        for (String pattern : new String[] {"yyyy-MM-dd HH:mm:ss", "yyyy-MM-dd"}) {
+            SimpleDateFormat format = new SimpleDateFormat(pattern);
+            format.setLenient(false);
             try {
-                Commit commit = readObject(join(OBJECT_DIR, file), Commit.class);
-                printCommitInformation(commit, file);
-            } catch (Exception ignored) {}
+                return format.parse(date).getTime();
+            } catch (ParseException excp) {
+                // Try the next form
+            }
         }
+        throw error("Incorrect date format.");
     }
 
-    public static void find(String messageToFind) {
-        List<String> fileList = plainFilenamesIn(OBJECT_DIR);
-        boolean flag = false;
-        for (String file : fileList) {
-            try {
-                Commit commit = readObject(join(OBJECT_DIR, file), Commit.class);
-                String message = commit.getMessage();
+    /** Return the time of the commit TIMESTAMP in milliseconds. Timestamps are written in
+     *  the local time zone, so the zone that follows them is not read. */
+    private static long parseTimestamp(String timestamp) {
+        try {
+            return new SimpleDateFormat("E MMM dd HH:mm:ss yyyy").parse(timestamp).getTime();
+        } catch (ParseException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
 
-                if (message.contains(messageToFind)) {
-                    System.out.println(file);
-                    flag = true;
-                }
-            } catch (Exception ignored) {}
+    public static void globalLog() {
+        PrintStream out = bufferedOutput();
+        CommitCatalog.forEach(entry -> printCommitInformation(out, entry.getCommitID(), entry.getParents(),
+                                                              entry.getTimestamp(), entry.getMessage()));
+        out.flush();
+    }
+
+    public static void find(String messageToFind) {
+        List<String> commitList = CommitCatalog.find(messageToFind);
+        for (String commitID : commitList) {
+            System.out.println(commitID);
         }
-        if (!flag) {
-            System.out.println("Found no commit with that message.");
-            System.exit(0);
+        if (commitList.isEmpty()) {
+            throw error("Found no commit with that message.");
         }
     }
 
     public static void status() {
         // Retrieve branches
-        List<String> branches = plainFilenamesIn(BRANCH_DIR); // List is already sorted in plainFilenamesIn
+        List<String> branches = branchNames(); // Includes remote-tracking branches, sorted
 
         // Retrieve current stage
-        Stage stage = readObject(TREE_DIR, Stage.class);
+        Stage stage = readStage();
         TreeMap<String, String> additionTree = stage.getAddition(); // TreeMap is already sorted
-        ArrayList<String> removalList = stage.getRemoval();
-        HashSet<String> removalSet = new HashSet<>(removalList);
+        Set<String> removalSet = stage.getRemoval();
+        List<String> removalList = new ArrayList<>(removalSet);
         Collections.sort(removalList);
 
         // Retrieve the latest commit tree
-        String currentBranch = readContentsAsString(HEAD_DIR);
+        String currentBranch = Journal.readString(HEAD_DIR);
         String HEAD = getHeadCommitID();
-        TreeMap<String, String> latestCommitTree = getCommitTreeWithCommitID(HEAD);
-
-        // Retrieve all the file name in the directory
-        List<String> files = plainFilenamesIn(CWD);
-        Set<String> filesSet = new HashSet<>(files);
+        String latestTreeID = ObjectStore.readObject(HEAD, Commit.class).getTreeID();
+
+        // Compare the latest commit tree with the working directory
+        TreeMap<String, String> modifications = new TreeMap<>();
+        TreeSet<String> untracked = new TreeSet<>();
+        for (TreeDiff diff = TreeDiff.againstWorkingTree(latestTreeID); diff.hasNext(); ) {
+            TreeDiff.Change change = diff.next();
+            String filename = change.getPath();
+            switch (change.getKind()) {
+                case MODIFIED -> {
+                    /* Tracked in the current commit, changed in the working directory, but not staged, or
+                    staged for addition, but with different contents than in the working directory */
+                    if (!Objects.equals(change.getNewID(), additionTree.get(filename))) {
+                        modifications.put(filename, filename + " (modified)");
+                    }
+                }
+                case REMOVED -> {
+                    /* Not staged for removal, but tracked in the current commit and deleted from the working directory */
+                    if (!removalSet.contains(filename)) {
+                        modifications.put(filename, filename + " (deleted)");
+                    }
+                }
+                case ADDED -> {
+                    /* files present in the working directory but neither staged for addition nor tracked */
+                    if (!additionTree.containsKey(filename)) {
+                        untracked.add(filename);
+                    }
+                }
+            }
+        }
 
         // List branches
         System.out.println("=== Branches ===");
@@ -264,72 +377,204 @@ public class Repository {
 
         // List Modifications Not Staged For Commit
         System.out.println("=== Modifications Not Staged For Commit ===");
-        for (Map.Entry<String, String> entry : latestCommitTree.entrySet()) {
-            String filename = entry.getKey();
-            String blobUID = entry.getValue();
-            if (filesSet.contains(filename)) {
-                Blob blob = new Blob(join(CWD, filename));
-                String fileBlobUID = blob.Hash();
-                if ((!Objects.equals(fileBlobUID, blobUID))) {
-                    if (!additionTree.containsKey(filename)) {
-                        /* Tracked in the current commit, changed in the working directory, but not staged */
-                        System.out.println(filename + " (modified)");
-                    } else {
-                        /* Staged for addition, but with different contents than in the working directory */
-                        String stageBlobUID = additionTree.get(filename);
-                        if (!Objects.equals(fileBlobUID, stageBlobUID)) {
-                            System.out.println(filename + " (modified)");
-                        }
-                    }
-                }
-            } else {
-                /* Not staged for removal, but tracked in the current commit and deleted from the working directory */
-                if (!removalSet.contains(filename)) {
-                    System.out.println(filename + " (deleted)");
-                }
-            }
+        for (String line : modifications.values()) {
+            System.out.println(line);
         }
         /* Staged for addition, but deleted in the working directory */
-        for (Map.Entry<String, String> entry : additionTree.entrySet()) {
-            String filename = entry.getKey();
-            if (!filesSet.contains(filename)) {
+        for (String filename : additionTree.keySet()) {
+            if (!join(CWD, filename).isFile()) {
                 System.out.println(filename + " (deleted)");
             }
         }
         System.out.println();
 
-        /* files present in the working directory but neither staged for addition nor tracked */
         System.out.println("=== Untracked Files ===");
-        for (String filename : filesSet) {
-            if (filesToBeIgnored.contains(filename)) continue;
-            if (!latestCommitTree.containsKey(filename) && !additionTree.containsKey(filename)) {
-                System.out.println(filename);
-            }
+        for (String filename : untracked) {
+            System.out.println(filename);
         }
         System.out.println();
     }
 
     public static void branch(String branchName) {
         File branchDirectory = join(BRANCH_DIR, branchName);
-        if (branchDirectory.exists()) {
-            System.out.println("A branch with that name already exists.");
-            System.exit(0);
+        if (Journal.exists(branchDirectory)) {
+            throw error("A branch with that name already exists.");
         }
         String latestCommitID = getHeadCommitID();
-        writeContents(join(BRANCH_DIR, branchName), latestCommitID);
+        Journal.write(branchDirectory, latestCommitID);
+    }
+
+    /** Return the names of every branch, sorted, including the remote-tracking branches
+     *  stored below BRANCH_DIR as remote/branch. */
+    public static List<String> branchNames() {
+        List<String> names = new ArrayList<>();
+        collectBranches(BRANCH_DIR, "", names);
+        Collections.sort(names);
+        return names;
+    }
+
+    private static void collectBranches(File dir, String prefix, List<String> names) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (file.isDirectory()) {
+                collectBranches(file, prefix + file.getName() + "/", names);
+            } else {
+                names.add(prefix + file.getName());
+            }
+        }
+    }
+
+    /** Replay the journal, then check that HEAD names a branch, that every branch and the
+     *  staging area point to stored objects, and that every object reachable from them is
+     *  stored and can be decoded. Object contents are not rehashed. The object index, commit
+     *  graph and catalog, which are derived from the objects, are rebuilt if they miss any
+     *  reachable commit. */
+    public static void fsck() {
+        for (String path : Journal.recover()) {
+            System.out.println("Recovered " + path + " from the journal.");
+        }
+
+        List<String> problems = new ArrayList<>();
+        Deque<String> commits = new ArrayDeque<>();
+        if (!HEAD_DIR.isFile()) {
+            problems.add("HEAD is missing.");
+        } else if (!join(BRANCH_DIR, readContentsAsString(HEAD_DIR)).isFile()) {
+            problems.add("HEAD points to missing branch " + readContentsAsString(HEAD_DIR) + ".");
+        }
+        for (String branch : branchNames()) {
+            String commitID = readContentsAsString(join(BRANCH_DIR, branch));
+            if (!ObjectStore.contains(commitID)) {
+                problems.add("Branch " + branch + " points to missing commit " + commitID + ".");
+            } else {
+                commits.push(commitID);
+            }
+        }
+
+        Set<String> checked = new HashSet<>();
+        List<String> reachable = new ArrayList<>();
+        try {
+            for (Map.Entry<String, String> entry : readStage().getAddition().entrySet()) {
+                checkBlob(entry.getValue(), "staged file " + entry.getKey(), checked, problems);
+            }
+        } catch (IllegalArgumentException | GitletException excp) {
+            problems.add("The staging area cannot be read.");
+        }
+
+        while (!commits.isEmpty()) {
+            String commitID = commits.pop();
+            if (!checked.add(commitID)) {
+                continue;
+            }
+            Commit commit;
+            try {
+                commit = ObjectStore.readObject(commitID, Commit.class);
+            } catch (IllegalArgumentException | GitletException excp) {
+                problems.add("Commit " + commitID + " cannot be read.");
+                continue;
+            }
+            reachable.add(commitID);
+            for (String parent : commit.getParent()) {
+                if (parent.isEmpty()) {
+                    continue;
+                }
+                if (ObjectStore.contains(parent)) {
+                    commits.push(parent);
+                } else {
+                    problems.add("Commit " + commitID + " has missing parent " + parent + ".");
+                }
+            }
+            checkTree(commit.getTreeID(), "", "commit " + commitID, checked, problems);
+        }
+        checkDerivedFiles(reachable);
+
+        for (String problem : problems) {
+            System.out.println(problem);
+        }
+        if (problems.isEmpty()) {
+            System.out.println("No problems found.");
+        }
+    }
+
+    /** Rebuild the object index, commit graph or catalog if it does not list every commit
+     *  in COMMITS, as when a crash cut off records appended to it. */
+    private static void checkDerivedFiles(List<String> commits) {
+        if (!commits.stream().allMatch(commitID -> ObjectIndex.contains(commitID, ObjectIndex.COMMIT))) {
+            ObjectIndex.rebuild();
+            System.out.println("Rebuilt the object index.");
+        }
+        if (!commits.stream().allMatch(CommitGraph::contains)) {
+            CommitGraph.rebuild();
+            System.out.println("Rebuilt the commit graph.");
+        }
+        Set<String> cataloged;
+        try {
+            cataloged = CommitCatalog.commitIDs();
+        } catch (GitletException excp) {
+            // A torn record at the end
+            cataloged = Set.of();
+        }
+        if (!cataloged.containsAll(commits)) {
+            CommitCatalog.rebuild();
+            System.out.println("Rebuilt the commit catalog.");
+        }
+    }
+
+    /** Check the tree TREEID of the directory PREFIX of OWNER and everything below it, adding
+     *  to PROBLEMS. PREFIX is "" or a path ending in "/". Objects in CHECKED are skipped, and
+     *  the checked ones are added to it. A missing object is reported and checking goes on. */
+    private static void checkTree(String treeID, String prefix, String owner, Set<String> checked,
+                                  List<String> problems) {
+        if (!checked.add(treeID)) {
+            return;
+        }
+        Tree tree;
+        try {
+            tree = ObjectStore.readObject(treeID, Tree.class);
+        } catch (IllegalArgumentException | GitletException excp) {
+            String directory = prefix.isEmpty() ? "" : "directory " + prefix + " of ";
+            problems.add("Tree " + treeID + " of " + directory + owner + " is missing or cannot be read.");
+            return;
+        }
+        for (Map.Entry<String, String> entry : tree.getEntries().entrySet()) {
+            if (Tree.isDirectory(entry.getKey())) {
+                checkTree(entry.getValue(), prefix + entry.getKey(), owner, checked, problems);
+            } else {
+                checkBlob(entry.getValue(), "file " + prefix + entry.getKey() + " of " + owner, checked, problems);
+            }
+        }
+    }
+
+    /** Check the blob BLOBID of OWNER and its chunks, adding to PROBLEMS. */
+    private static void checkBlob(String blobID, String owner, Set<String> checked, List<String> problems) {
+        if (!checked.add(blobID)) {
+            return;
+        }
+        Blob blob;
+        try {
+            blob = ObjectStore.readObject(blobID, Blob.class);
+        } catch (IllegalArgumentException | GitletException excp) {
+            problems.add("Blob " + blobID + " of " + owner + " is missing or cannot be read.");
+            return;
+        }
+        for (String chunkID : blob.getChunks()) {
+            if (!ObjectStore.contains(chunkID)) {
+                problems.add("Chunk " + chunkID + " of " + owner + " is missing.");
+            }
+        }
     }
 
     public static void rmBranch(String branchName) {
         File branchDirectory = join(BRANCH_DIR, branchName);
-        if (!branchDirectory.exists()) {
-            System.out.println("A branch with that name does not exist.");
-            System.exit(0);
+        if (!Journal.exists(branchDirectory)) {
+            throw error("A branch with that name does not exist.");
         }
-        String currentBranch = readContentsAsString(HEAD_DIR);
+        String currentBranch = Journal.readString(HEAD_DIR);
         if (Objects.equals(branchName, currentBranch)) {
-            System.out.println("Cannot remove the current branch.");
-            System.exit(0);
+            throw error("Cannot remove the current branch.");
         }
-        deleteFile(branchDirectory);
+        Journal.delete(branchDirectory);
     }
 }
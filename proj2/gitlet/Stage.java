@@ -1,29 +1,80 @@
 package gitlet;
 
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.TreeMap;
+import java.util.*;
 
+/** The files staged for addition and removal.
+ *  Besides its contents, a Stage read from the repository remembers the changes made to it
+ *  since, path by path, so that StageLog can append just those instead of rewriting it.
+ */
 public class Stage implements Serializable {
+    /** The change that stages a path for removal. */
+    static final String REMOVED = "-";
+    /** The change that leaves a path neither staged for addition nor for removal. */
+    static final String UNSTAGED = "";
 
     private final TreeMap<String, String> addition;
-    private final ArrayList<String> removal;
+    private final HashSet<String> removal;
+
+    /** The generation of the stored stage this one was read from, which StageLog bumps on
+     *  every rewrite. */
+    private long generation;
+    /** The length of the log that was replayed onto the stored stage. */
+    private transient long logLength;
+    /** The changes since the stage was read, by path: a blob UID, REMOVED or UNSTAGED. */
+    private transient LinkedHashMap<String, String> changes = new LinkedHashMap<>();
+    /** True if the stage does not build on the stored one, so it has to be rewritten. */
+    private transient boolean replaced = true;
 
     public Stage() {
         addition = new TreeMap<>();
-        removal = new ArrayList<>();
+        removal = new HashSet<>();
+    }
+
+    /** Write the generation and the staged additions and removals to OUT in the compact
+     *  binary format. */
+    void encode(Codec.Encoder out) {
+        out.writeVarint(generation);
+        out.writeVarint(addition.size());
+        for (Map.Entry<String, String> entry : addition.entrySet()) {
+            out.writeString(entry.getKey());
+            out.writeHash(entry.getValue());
+        }
+        out.writeVarint(removal.size());
+        for (String filename : new TreeSet<>(removal)) {
+            out.writeString(filename);
+        }
+    }
+
+    /** Return the stage whose generation, additions and removals are read from IN. */
+    static Stage decode(Codec.Decoder in) {
+        Stage stage = new Stage();
+        stage.generation = in.readVarint();
+        int count = in.readCount();
+        for (int i = 0; i < count; i++) {
+            String filename = in.readString();
+            stage.addition.put(filename, in.readHash());
+        }
+        count = in.readCount();
+        for (int i = 0; i < count; i++) {
+            stage.removal.add(in.readString());
+        }
+        stage.replaced = false;
+        return stage;
     }
 
     public void initialize() {
         addition.clear();
         removal.clear();
+        changes.clear();
+        replaced = true;
     }
 
     public TreeMap<String, String> getAddition() {
         return this.addition;
     }
 
-    public ArrayList<String> getRemoval() {
+    public Set<String> getRemoval() {
         return this.removal;
     }
 
@@ -36,20 +87,74 @@ public class Stage implements Serializable {
     }
 
     public void addAddition(String filename, String blobUID) {
-        removeRemoval(filename);
-        addition.put(filename, blobUID);
+        change(filename, blobUID);
     }
 
     public void removeAddition(String filename) {
-        addition.remove(filename);
+        if (addition.containsKey(filename)) {
+            change(filename, UNSTAGED);
+        }
     }
 
     public void addRemoval(String filename) {
-        removeAddition(filename);
-        removal.add(filename);
+        change(filename, REMOVED);
     }
 
     public void removeRemoval(String filename) {
+        if (removal.contains(filename)) {
+            change(filename, UNSTAGED);
+        }
+    }
+
+    /** Apply CHANGE to FILENAME and remember it. */
+    private void change(String filename, String change) {
+        apply(filename, change);
+        if (!replaced) {
+            changes.put(filename, change);
+        }
+    }
+
+    /** Apply CHANGE to FILENAME: stage the blob UID CHANGE for addition, or stage FILENAME
+     *  for removal if CHANGE is REMOVED, or for neither if it is UNSTAGED. */
+    void apply(String filename, String change) {
+        addition.remove(filename);
         removal.remove(filename);
+        if (change.equals(REMOVED)) {
+            removal.add(filename);
+        } else if (!change.equals(UNSTAGED)) {
+            addition.put(filename, change);
+        }
+    }
+
+    /** Return the changes since the stage was read, in the order of their paths' first
+     *  change. */
+    Map<String, String> changes() {
+        return changes;
+    }
+
+    boolean isReplaced() {
+        return replaced;
+    }
+
+    /** Mark the stage as needing a rewrite, as when its log has grown too long. */
+    void replace() {
+        changes.clear();
+        replaced = true;
+    }
+
+    long getGeneration() {
+        return generation;
+    }
+
+    void setGeneration(long generation) {
+        this.generation = generation;
+    }
+
+    long getLogLength() {
+        return logLength;
+    }
+
+    void setLogLength(long logLength) {
+        this.logLength = logLength;
     }
 }
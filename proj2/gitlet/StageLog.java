@@ -0,0 +1,233 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import static gitlet.Utils.*;
+import static java.nio.file.StandardOpenOption.*;
+
+/** The staging area, stored as a snapshot in TREE_DIR and a log of the changes made to it
+ *  since in LOG_FILE, so that add and rm append only the paths they change and processes
+ *  staging files at the same time do not overwrite each other's entries.
+ *
+ *  The snapshot records a generation, and the log starts with the generation it applies to;
+ *  a log of any other generation is stale and ignored. Each record of the log holds the
+ *  changes of one command as a 4-byte length, the changes in the format of Codec and their
+ *  CRC-32, so a torn record at the end is ignored too. A change is a path followed by 0 to
+ *  unstage it, 1 and a blob UID to stage it for addition, or 2 to stage it for removal.
+ *
+ *  Reading takes no lock: the log is read before the snapshot, so a snapshot rewritten in
+ *  between already holds the changes of the stale log. Writers take LOCK_FILE. Appending
+ *  checks the generation and drops a torn tail under the lock. Rewriting the snapshot, which
+ *  commands that empty the stage do and add does once the log grows past COMPACT_BYTES,
+ *  holds the lock from folding in the changes appended since the stage was read until the
+ *  journal has applied the new snapshot and the log has been restarted.
+ *  @author Ethan
+ */
+public class StageLog {
+    /** The log of changes to the staging area. */
+    public static final File LOG_FILE = join(Repository.GITLET_DIR, "TREE.log");
+    /** The file locked by processes changing the staging area. */
+    public static final File LOCK_FILE = join(Repository.GITLET_DIR, "TREE.lock");
+
+    /** The log size past which the next change rewrites the snapshot. */
+    static final long COMPACT_BYTES = 256 << 10;
+    /** The size of the generation at the start of the log. */
+    private static final int HEADER_BYTES = 8;
+
+    private static final int UNSTAGED = 0;
+    private static final int ADDED = 1;
+    private static final int REMOVED = 2;
+
+    /** The changes of the current command to append, by path. */
+    private static final LinkedHashMap<String, String> pending = new LinkedHashMap<>();
+    /** The stage the current command rewrites, or null. */
+    private static Stage rewritten;
+    /** The generation of the rewritten snapshot. */
+    private static long nextGeneration;
+    /** The lock held while the snapshot is rewritten, or null. */
+    private static FileLock lock;
+
+    /** Return the staging area, including the changes of the current command. */
+    static synchronized Stage read() {
+        if (rewritten != null) {
+            Stage stage = Codec.decode(Codec.encode(rewritten), Stage.class);
+            stage.setLogLength(rewritten.getLogLength());
+            stage.replace();
+            return stage;
+        }
+        byte[] log = LOG_FILE.exists() ? readContents(LOG_FILE) : new byte[0];
+        Stage stage = Codec.decode(readContents(Repository.TREE_DIR), Stage.class);
+        if (generation(log) == stage.getGeneration()) {
+            stage.setLogLength(replay(log, HEADER_BYTES, stage));
+        }
+        for (Map.Entry<String, String> change : pending.entrySet()) {
+            stage.apply(change.getKey(), change.getValue());
+        }
+        return stage;
+    }
+
+    /** Schedule the changes made to STAGE since it was read to be stored by the journal. */
+    static synchronized void write(Stage stage) {
+        if (!stage.isReplaced() && rewritten == null && stage.getLogLength() <= COMPACT_BYTES) {
+            pending.putAll(stage.changes());
+            return;
+        }
+        stage.replace();
+        rewritten = stage;
+        pending.clear();
+    }
+
+    /** Return true if the current command changed the staging area. */
+    static synchronized boolean changed() {
+        return rewritten != null || !pending.isEmpty();
+    }
+
+    /** Store the changes of the current command: append them to the log, or lock the stage
+     *  and hand its rewritten snapshot to the journal. Called by the journal once the objects
+     *  they refer to are durable. */
+    static synchronized void prepare() {
+        if (rewritten != null) {
+            lock = Journal.lock(LOCK_FILE);
+            long generation = storedGeneration();
+            if (generation == rewritten.getGeneration() && LOG_FILE.exists()) {
+                byte[] log = readContents(LOG_FILE);
+                if (generation(log) == generation) {
+                    replay(log, Math.max(HEADER_BYTES, rewritten.getLogLength()), rewritten);
+                }
+            }
+            nextGeneration = Math.max(generation, rewritten.getGeneration()) + 1;
+            rewritten.setGeneration(nextGeneration);
+            Journal.write(Repository.TREE_DIR, Codec.encode(rewritten));
+        } else if (!pending.isEmpty()) {
+            FileLock appending = Journal.lock(LOCK_FILE);
+            try (FileChannel log = FileChannel.open(LOG_FILE.toPath(), CREATE, READ, WRITE)) {
+                long generation = storedGeneration();
+                byte[] contents = readContents(LOG_FILE);
+                if (generation(contents) == generation) {
+                    log.truncate(replay(contents, HEADER_BYTES, null));
+                } else {
+                    log.truncate(0);
+                    write(log, ByteBuffer.allocate(HEADER_BYTES).putLong(0, generation));
+                }
+                log.position(log.size());
+                write(log, record(pending));
+                log.force(false);
+            } catch (IOException excp) {
+                throw error("Cannot write staging area: %s", excp.getMessage());
+            } finally {
+                Journal.release(appending);
+            }
+            pending.clear();
+        }
+    }
+
+    /** Finish storing the changes of the current command, once the journal has applied its
+     *  own: restart the log after a rewrite and release the lock. */
+    static synchronized void finish() {
+        if (rewritten == null) {
+            return;
+        }
+        try (FileChannel log = FileChannel.open(LOG_FILE.toPath(), CREATE, WRITE, TRUNCATE_EXISTING)) {
+            write(log, ByteBuffer.allocate(HEADER_BYTES).putLong(0, nextGeneration));
+            log.force(false);
+        } catch (IOException excp) {
+            throw error("Cannot write staging area: %s", excp.getMessage());
+        } finally {
+            discard();
+        }
+    }
+
+    /** Drop the changes of the current command and release the lock. */
+    static synchronized void discard() {
+        pending.clear();
+        rewritten = null;
+        if (lock != null) {
+            Journal.release(lock);
+            lock = null;
+        }
+    }
+
+    /** Return the generation of the snapshot as stored. */
+    private static long storedGeneration() {
+        if (!Repository.TREE_DIR.exists()) {
+            return 0;
+        }
+        return Codec.decode(readContents(Repository.TREE_DIR), Stage.class).getGeneration();
+    }
+
+    /** Return the generation LOG applies to, or -1 if it has none. */
+    private static long generation(byte[] log) {
+        return log.length < HEADER_BYTES ? -1 : ByteBuffer.wrap(log).getLong(0);
+    }
+
+    /** Apply the changes of the complete records of LOG from position START onto STAGE,
+     *  unless it is null. Returns the position where the complete records end. */
+    private static long replay(byte[] log, long start, Stage stage) {
+        ByteBuffer records = ByteBuffer.wrap(log);
+        records.position((int) Math.min(start, log.length));
+        int valid = records.position();
+        while (records.remaining() >= 8) {
+            int length = records.getInt();
+            if (length < 0 || records.remaining() < length + 4) {
+                break;
+            }
+            byte[] changes = new byte[length];
+            records.get(changes);
+            CRC32 crc = new CRC32();
+            crc.update(changes);
+            if (records.getInt() != (int) crc.getValue()) {
+                break;
+            }
+            if (stage != null) {
+                Codec.Decoder in = new Codec.Decoder(changes);
+                int count = in.readCount();
+                for (int i = 0; i < count; i++) {
+                    String filename = in.readString();
+                    switch ((int) in.readVarint()) {
+                        case ADDED -> stage.apply(filename, in.readHash());
+                        case REMOVED -> stage.apply(filename, Stage.REMOVED);
+                        default -> stage.apply(filename, Stage.UNSTAGED);
+                    }
+                }
+            }
+            valid = records.position();
+        }
+        return valid;
+    }
+
+    /** Return the log record of CHANGES. */
+    private static ByteBuffer record(Map<String, String> changes) {
+        Codec.Encoder out = new Codec.Encoder();
+        out.writeVarint(changes.size());
+        for (Map.Entry<String, String> change : changes.entrySet()) {
+            out.writeString(change.getKey());
+            if (change.getValue().equals(Stage.REMOVED)) {
+                out.writeVarint(REMOVED);
+            } else if (change.getValue().equals(Stage.UNSTAGED)) {
+                out.writeVarint(UNSTAGED);
+            } else {
+                out.writeVarint(ADDED);
+                out.writeHash(change.getValue());
+            }
+        }
+        byte[] payload = out.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer record = ByteBuffer.allocate(payload.length + 8);
+        record.putInt(payload.length).put(payload).putInt((int) crc.getValue());
+        return record.flip();
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
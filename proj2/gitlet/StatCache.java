@@ -0,0 +1,201 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static gitlet.Utils.*;
+
+/** A persistent cache of the blob ID of each working file, keyed by the file's size,
+ *  modification time and inode. A file whose stat information still matches its entry is
+ *  known to be unchanged, so its blob ID is reused without reading the file.
+ *
+ *  As in git, an entry whose modification time is not older than the cache file itself is
+ *  treated as racy: the file may have changed again within the same timestamp tick after it
+ *  was recorded, so it is rehashed.
+ *
+ *  The cache is stored in the format of Codec, as the number of entries followed by the
+ *  path, size, modification time, inode and blob ID of each.
+ *  @author Ethan
+ */
+public class StatCache {
+    /** The file which stores the stat cache. */
+    public static final File STAT_DIR = join(Repository.GITLET_DIR, "STAT");
+
+    /** The stat information and blob ID recorded for a single working file. */
+    private static class Entry {
+        private final long size;
+        private final long mtime;
+        private final long inode;
+        private final String blobUID;
+
+        Entry(long[] stat, String blobUID) {
+            this.size = stat[0];
+            this.mtime = stat[1];
+            this.inode = stat[2];
+            this.blobUID = blobUID;
+        }
+
+        boolean matches(long[] stat) {
+            return size == stat[0] && mtime == stat[1] && inode == stat[2];
+        }
+    }
+
+    /** The cached entries, or null until they are first needed. */
+    private static TreeMap<String, Entry> entries;
+    /** The modification time of the cache file when it was loaded. */
+    private static long cacheTime;
+    /** True if the entries have changed since they were loaded. */
+    private static boolean changed;
+
+    /** Return the blob ID of the working file FILENAME if it is known without reading the
+     *  file, and null otherwise. */
+    public static String lookup(String filename) {
+        return lookup(filename, stat(join(Repository.CWD, filename)));
+    }
+
+    /** Return the blob ID of the working file FILENAME, whose stat information STAT was
+     *  just read, if it is known without reading the file, and null otherwise. */
+    public static String lookup(String filename, long[] stat) {
+        load();
+        Entry entry = entries.get(filename);
+        if (entry == null) {
+            return null;
+        }
+        if (stat == null || !entry.matches(stat) || entry.mtime >= cacheTime) {
+            return null;
+        }
+        return entry.blobUID;
+    }
+
+    /** Return the blob ID of the working file FILENAME, hashing it only if its stat
+     *  information has changed. Returns null if the file does not exist. */
+    public static String blobUID(String filename) {
+        return blobUID(filename, stat(join(Repository.CWD, filename)));
+    }
+
+    /** Return the blob ID of the working file FILENAME, whose stat information STAT was
+     *  just read, hashing it only if that information has changed. Returns null if the file
+     *  does not exist. */
+    public static String blobUID(String filename, long[] stat) {
+        String blobUID = lookup(filename, stat);
+        if (blobUID != null) {
+            return blobUID;
+        }
+        File file = join(Repository.CWD, filename);
+        if (!file.isFile()) {
+            forget(filename);
+            return null;
+        }
+        blobUID = new Blob(file).Hash();
+        // An edit made while the file was hashed changes its stat, and is caught next time
+        record(filename, stat, blobUID);
+        return blobUID;
+    }
+
+    /** Record that the working file FILENAME currently holds the blob with BLOBUID. */
+    public static void record(String filename, String blobUID) {
+        record(filename, stat(join(Repository.CWD, filename)), blobUID);
+    }
+
+    /** Record that the working file FILENAME held the blob with BLOBUID when its stat
+     *  information was STAT. STAT must be read before the file is hashed or written. */
+    public static void record(String filename, long[] stat, String blobUID) {
+        load();
+        if (stat != null) {
+            entries.put(filename, new Entry(stat, blobUID));
+            changed = true;
+        }
+    }
+
+    /** Drop the entry of FILENAME, if any. */
+    public static void forget(String filename) {
+        load();
+        if (entries.remove(filename) != null) {
+            changed = true;
+        }
+    }
+
+    /** Store the cache if it has changed. */
+    public static void flush() {
+        if (changed) {
+            Codec.Encoder out = new Codec.Encoder();
+            out.writeVarint(entries.size());
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                Entry value = entry.getValue();
+                out.writeString(entry.getKey());
+                out.writeVarint(value.size);
+                out.writeVarint(value.mtime);
+                out.writeVarint(value.inode);
+                out.writeHash(value.blobUID);
+            }
+            Journal.replace(STAT_DIR, Codec.encode(Codec.STAT_CACHE, out));
+            cacheTime = STAT_DIR.lastModified();
+            changed = false;
+        }
+    }
+
+    /** Drop the loaded entries, so the cache file is read again when it is next needed.
+     *  Changes not yet flushed are lost. */
+    public static void unload() {
+        entries = null;
+        changed = false;
+    }
+
+    private static void load() {
+        if (entries != null) {
+            return;
+        }
+        entries = new TreeMap<>();
+        if (!STAT_DIR.exists()) {
+            return;
+        }
+        cacheTime = STAT_DIR.lastModified();
+        byte[] contents = readContents(STAT_DIR);
+        // A cache in an older format is dropped, and rebuilt as files are hashed
+        if (Codec.typeOf(contents) != Codec.STAT_CACHE) {
+            return;
+        }
+        Codec.Decoder in = Codec.decoder(contents);
+        int count = in.readCount();
+        for (int i = 0; i < count; i++) {
+            String filename = in.readString();
+            long[] stat = {in.readVarint(), in.readVarint(), in.readVarint()};
+            entries.put(filename, new Entry(stat, in.readHash()));
+        }
+    }
+
+    /** Return the size, modification time in milliseconds and inode of FILE, or null if
+     *  it is not a regular file. The inode is 0 where the file system does not have one. */
+    static long[] stat(File file) {
+        try {
+            Map<String, Object> attributes =
+                Files.readAttributes(file.toPath(), "unix:size,lastModifiedTime,ino,isRegularFile",
+                                     LinkOption.NOFOLLOW_LINKS);
+            if (!(Boolean) attributes.get("isRegularFile")) {
+                return null;
+            }
+            return new long[] {(Long) attributes.get("size"),
+                               ((FileTime) attributes.get("lastModifiedTime")).toMillis(),
+                               (Long) attributes.get("ino")};
+        } catch (UnsupportedOperationException excp) {
+            try {
+                BasicFileAttributes attributes =
+                    Files.readAttributes(file.toPath(), BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                if (!attributes.isRegularFile()) {
+                    return null;
+                }
+                return new long[] {attributes.size(), attributes.lastModifiedTime().toMillis(), 0};
+            } catch (IOException e) {
+                return null;
+            }
+        } catch (IOException excp) {
+            return null;
+        }
+    }
+}
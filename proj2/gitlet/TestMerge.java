@@ -0,0 +1,60 @@
+package gitlet;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/** Tests of the line merge of files which are not UTF-8 text: every byte of the versions
+ *  must come through unchanged, whether a hunk merges cleanly or is a conflict.
+ *  @author Ethan
+ */
+public class TestMerge {
+    /** Bytes that are not valid UTF-8, and would be replaced if decoded as such. */
+    private static final byte[] LATIN1 = {'c', 'a', 'f', (byte) 0xe9, '\n'};
+    private static final byte[] BINARY = {0, (byte) 0xff, (byte) 0xfe, (byte) 0x80, '\n'};
+
+    @Test
+    public void mergeCleanly() {
+        byte[] split = concat(LATIN1, bytes("two\n"), BINARY);
+        byte[] current = concat(BINARY, bytes("two\n"), BINARY);
+        byte[] given = concat(LATIN1, bytes("two\n"), LATIN1);
+        Merge merge = Merge.merge(split, current, given);
+        assertFalse(merge.isConflicted());
+        assertArrayEquals(concat(BINARY, bytes("two\n"), LATIN1), merge.getContent());
+    }
+
+    @Test
+    public void keepConflictingBytes() {
+        byte[] split = concat(bytes("one\n"), LATIN1);
+        byte[] current = concat(bytes("one\n"), BINARY);
+        byte[] given = concat(bytes("one\n"), LATIN1, LATIN1);
+        Merge merge = Merge.merge(split, current, given);
+        assertTrue(merge.isConflicted());
+        assertArrayEquals(concat(bytes("one\n<<<<<<< HEAD\n"), BINARY, bytes("=======\n"),
+                                 LATIN1, LATIN1, bytes(">>>>>>>\n")),
+                          merge.getContent());
+    }
+
+    /* ------------------------------- Private methods ------------------------------- */
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /** Return the concatenation of PARTS. */
+    private static byte[] concat(byte[]... parts) {
+        int length = 0;
+        for (byte[] part : parts) {
+            length += part.length;
+        }
+        byte[] result = new byte[length];
+        int position = 0;
+        for (byte[] part : parts) {
+            System.arraycopy(part, 0, result, position, part.length);
+            position += part.length;
+        }
+        return result;
+    }
+}
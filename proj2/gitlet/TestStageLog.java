@@ -0,0 +1,172 @@
+package gitlet;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/** Tests of the staging area log: replaying appended changes, ignoring a torn tail and a
+ *  stale log, and rewriting the snapshot once the log grows past COMPACT_BYTES.
+ *  Each test stages files the way add and rm do, in a repository in a temporary directory.
+ *  @author Ethan
+ */
+public class TestStageLog {
+    /** Blob IDs to stage. The blobs are never read, so they need not exist. */
+    private static final String BLOB1 = "1111111111111111111111111111111111111111";
+    private static final String BLOB2 = "2222222222222222222222222222222222222222";
+
+    static {
+        // Repository finds its directory through user.dir when it is first loaded
+        try {
+            System.setProperty("user.dir", Files.createTempDirectory("stagelog").toString());
+        } catch (IOException excp) {
+            throw new IllegalStateException(excp);
+        }
+    }
+
+    @BeforeClass
+    public static void initRepository() {
+        Repository.init();
+        Journal.commit();
+    }
+
+    /** Start every test from an empty stage. */
+    @Before
+    public void clearStage() {
+        Stage stage = Repository.readStage();
+        stage.initialize();
+        store(stage);
+    }
+
+    @Test
+    public void replayAppendedChanges() {
+        byte[] snapshot = Utils.readContents(Repository.TREE_DIR);
+        long length = StageLog.LOG_FILE.length();
+        stage("a.txt", BLOB1);
+        stage("b.txt", BLOB2);
+        stage("a.txt", Stage.UNSTAGED);
+        stage("c.txt", Stage.REMOVED);
+
+        assertArrayEquals(snapshot, Utils.readContents(Repository.TREE_DIR));
+        assertTrue(StageLog.LOG_FILE.length() > length);
+        Stage stage = Repository.readStage();
+        assertEquals(1, stage.getAddition().size());
+        assertEquals(BLOB2, stage.getAddition().get("b.txt"));
+        assertEquals(1, stage.getRemoval().size());
+        assertTrue(stage.getRemoval().contains("c.txt"));
+    }
+
+    @Test
+    public void ignoreTornTail() {
+        stage("a.txt", BLOB1);
+        long valid = StageLog.LOG_FILE.length();
+
+        // A record whose length runs past the end of the log
+        append(new byte[] {0, 0, 0, 100, 1, 2, 3, 4, 5, 6});
+        assertEquals(BLOB1, Repository.readStage().getAddition().get("a.txt"));
+
+        // The next append drops the torn record rather than writing after it
+        stage("b.txt", BLOB2);
+        Stage stage = Repository.readStage();
+        assertEquals(BLOB1, stage.getAddition().get("a.txt"));
+        assertEquals(BLOB2, stage.getAddition().get("b.txt"));
+
+        // A complete record with a wrong checksum is torn as well
+        byte[] log = Utils.readContents(StageLog.LOG_FILE);
+        assertTrue(log.length > valid);
+        log[log.length - 1] ^= 1;
+        Utils.writeContents(StageLog.LOG_FILE, (Object) log);
+        stage = Repository.readStage();
+        assertEquals(BLOB1, stage.getAddition().get("a.txt"));
+        assertNull(stage.getAddition().get("b.txt"));
+    }
+
+    @Test
+    public void ignoreStaleGeneration() {
+        long generation = Repository.readStage().getGeneration();
+        stage("a.txt", BLOB1);
+        byte[] staleLog = Utils.readContents(StageLog.LOG_FILE);
+        assertEquals(generation, ByteBuffer.wrap(staleLog).getLong(0));
+
+        // Emptying the stage rewrites the snapshot under the next generation
+        clearStage();
+        assertEquals(generation + 1, Repository.readStage().getGeneration());
+        assertEquals(8, StageLog.LOG_FILE.length());
+
+        // A log left over from the previous generation changes nothing
+        Utils.writeContents(StageLog.LOG_FILE, (Object) staleLog);
+        assertTrue(Repository.readStage().empty());
+
+        // and is restarted by the next append
+        stage("b.txt", BLOB2);
+        Stage stage = Repository.readStage();
+        assertNull(stage.getAddition().get("a.txt"));
+        assertEquals(BLOB2, stage.getAddition().get("b.txt"));
+        assertEquals(generation + 1, ByteBuffer.wrap(Utils.readContents(StageLog.LOG_FILE)).getLong(0));
+    }
+
+    @Test
+    public void compactLongLog() {
+        long generation = Repository.readStage().getGeneration();
+        char[] padding = new char[100];
+        Arrays.fill(padding, 'x');
+        int files = 0;
+        while (StageLog.LOG_FILE.length() <= StageLog.COMPACT_BYTES) {
+            Stage stage = Repository.readStage();
+            for (int i = 0; i < 100; i++, files++) {
+                stage.addAddition(new String(padding) + files + ".txt", BLOB1);
+            }
+            store(stage);
+        }
+        byte[] snapshot = Utils.readContents(Repository.TREE_DIR);
+        assertEquals(generation, Repository.readStage().getGeneration());
+
+        // The change after the log outgrew COMPACT_BYTES is folded into a new snapshot
+        stage("last.txt", BLOB2);
+        assertFalse(Arrays.equals(snapshot, Utils.readContents(Repository.TREE_DIR)));
+        assertEquals(8, StageLog.LOG_FILE.length());
+        Stage stage = Repository.readStage();
+        assertEquals(generation + 1, stage.getGeneration());
+        assertEquals(files + 1, stage.getAddition().size());
+        assertEquals(BLOB1, stage.getAddition().get(new String(padding) + 0 + ".txt"));
+        assertEquals(BLOB2, stage.getAddition().get("last.txt"));
+    }
+
+    /* ------------------------------- Private methods ------------------------------- */
+
+    /** Stage FILENAME as a command of its own: for addition of the blob UID CHANGE, or for
+     *  removal or neither if CHANGE is Stage.REMOVED or Stage.UNSTAGED. */
+    private static void stage(String filename, String change) {
+        Stage stage = Repository.readStage();
+        if (change.equals(Stage.REMOVED)) {
+            stage.addRemoval(filename);
+        } else if (change.equals(Stage.UNSTAGED)) {
+            stage.removeAddition(filename);
+        } else {
+            stage.addAddition(filename, change);
+        }
+        store(stage);
+    }
+
+    /** Write STAGE and commit it, as at the end of a command. */
+    private static void store(Stage stage) {
+        Repository.writeStage(stage);
+        Journal.commit();
+    }
+
+    /** Append BYTES to the stage log, as a write cut short by a crash would leave it. */
+    private static void append(byte[] bytes) {
+        try (FileOutputStream out = new FileOutputStream(StageLog.LOG_FILE, true)) {
+            out.write(bytes);
+        } catch (IOException excp) {
+            throw new IllegalStateException(excp);
+        }
+    }
+}
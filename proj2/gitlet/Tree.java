@@ -0,0 +1,138 @@
+package gitlet;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/** Represents one directory of a commit snapshot.
+ *  A tree maps the name of each file in the directory to its blob ID, and the name of each
+ *  subdirectory, with a trailing "/", to the ID of the tree for that subdirectory. Trees are
+ *  stored as objects identified by the hash of their entries under a "tree" header, so a
+ *  directory that did not change between two commits is stored once and shared by both.
+ *  @author Ethan
+ */
+public class Tree {
+    /** The entries of this directory, sorted by name. */
+    private final TreeMap<String, String> entries;
+
+    Tree(TreeMap<String, String> entries) {
+        this.entries = entries;
+    }
+
+    /** Write the entries of this tree to OUT in the compact binary format. */
+    void encode(Codec.Encoder out) {
+        out.writeVarint(entries.size());
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            out.writeString(entry.getKey());
+            out.writeHash(entry.getValue());
+        }
+    }
+
+    /** Return the tree whose entries are read from IN. */
+    static Tree decode(Codec.Decoder in) {
+        TreeMap<String, String> entries = new TreeMap<>();
+        int count = in.readCount();
+        for (int i = 0; i < count; i++) {
+            String name = in.readString();
+            entries.put(name, in.readHash());
+        }
+        return new Tree(entries);
+    }
+
+    /** Return the ID of this tree: the hash, framed as described in Codec, of each entry as
+     *  its name, a NUL byte and the raw 20-byte ID, as in git. Names cannot hold a NUL and IDs
+     *  have a fixed size, so no two different trees hash the same content. */
+    public String Hash() {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            content.writeBytes(entry.getKey().getBytes(StandardCharsets.UTF_8));
+            content.write(0);
+            content.writeBytes(ObjectStore.fromHex(entry.getValue()));
+        }
+        return Codec.hash("tree", content.toByteArray());
+    }
+
+    /** Return the entries of this directory. */
+    public TreeMap<String, String> getEntries() {
+        return entries;
+    }
+
+    /** Return true if NAME is the name of a subdirectory entry. */
+    public static boolean isDirectory(String name) {
+        return name.endsWith("/");
+    }
+
+    /** Store the trees for a snapshot of FILES, which maps each file path to its blob ID,
+     *  and return the ID of the root tree. */
+    public static String write(TreeMap<String, String> files) {
+        return update(null, files);
+    }
+
+    /** Store the trees for the snapshot given by the root tree TREEID with CHANGES applied,
+     *  and return the ID of the new root tree. CHANGES maps each changed file path to its
+     *  new blob ID, or to null if the file is removed. Only the trees on the changed paths are
+     *  rewritten; every other subtree is shared with the original snapshot. */
+    public static String update(String treeID, SortedMap<String, String> changes) {
+        String rootID = updateTree(treeID, changes);
+        if (rootID == null) {
+            Tree empty = new Tree(new TreeMap<>());
+            rootID = empty.Hash();
+            ObjectStore.writeObject(rootID, empty);
+        }
+        return rootID;
+    }
+
+    /** Return the blob ID of the file PATH in the root tree TREEID, or null if there is none.
+     *  Only the trees along PATH are read. */
+    public static String lookup(String treeID, String path) {
+        int slash = path.indexOf('/');
+        while (slash >= 0 && treeID != null) {
+            treeID = ObjectStore.readObject(treeID, Tree.class).entries.get(path.substring(0, slash + 1));
+            path = path.substring(slash + 1);
+            slash = path.indexOf('/');
+        }
+        return treeID == null ? null : ObjectStore.readObject(treeID, Tree.class).entries.get(path);
+    }
+
+    /** Apply CHANGES to the tree TREEID, or to an empty tree if TREEID is null, store the
+     *  result and return its ID. Returns null instead if the result is empty. */
+    private static String updateTree(String treeID, SortedMap<String, String> changes) {
+        TreeMap<String, String> entries = new TreeMap<>();
+        if (treeID != null) {
+            entries.putAll(ObjectStore.readObject(treeID, Tree.class).entries);
+        }
+
+        // Apply changes to files in this directory, and group the rest by subdirectory
+        TreeMap<String, TreeMap<String, String>> subdirectoryChanges = new TreeMap<>();
+        for (Map.Entry<String, String> change : changes.entrySet()) {
+            String path = change.getKey();
+            int slash = path.indexOf('/');
+            if (slash < 0) {
+                if (change.getValue() == null) {
+                    entries.remove(path);
+                } else {
+                    entries.put(path, change.getValue());
+                }
+            } else {
+                subdirectoryChanges.computeIfAbsent(path.substring(0, slash + 1), k -> new TreeMap<>())
+                                   .put(path.substring(slash + 1), change.getValue());
+            }
+        }
+        for (Map.Entry<String, TreeMap<String, String>> entry : subdirectoryChanges.entrySet()) {
+            String subtreeID = updateTree(entries.get(entry.getKey()), entry.getValue());
+            if (subtreeID == null) {
+                entries.remove(entry.getKey());
+            } else {
+                entries.put(entry.getKey(), subtreeID);
+            }
+        }
+
+        if (entries.isEmpty()) {
+            return null;
+        }
+        Tree tree = new Tree(entries);
+        String UID = tree.Hash();
+        ObjectStore.writeObject(UID, tree);
+        return UID;
+    }
+}
@@ -0,0 +1,197 @@
+package gitlet;
+
+import java.util.*;
+
+/** An iterator over the differences between two snapshots: the trees of two commits, or
+ *  the tree of a commit and the working directory.
+ *  Both sides are walked together one directory at a time, merging the sorted entries of
+ *  each directory, so only added, removed and modified files are ever produced. Between two
+ *  trees, a subdirectory with the same tree ID on both sides is skipped without being read.
+ *  Against the working directory, a file present on both sides is compared through the stat
+ *  cache, and files missing from the tree are reported without being hashed.
+ *  @author Ethan
+ */
+public class TreeDiff implements Iterator<TreeDiff.Change> {
+    /** The ways a file can differ between the two sides. */
+    public enum Kind { ADDED, REMOVED, MODIFIED }
+
+    /** A single file that differs between the two sides. */
+    public static class Change {
+        private final String path;
+        private final Kind kind;
+        private final String oldID;
+        private final String newID;
+
+        Change(String path, Kind kind, String oldID, String newID) {
+            this.path = path;
+            this.kind = kind;
+            this.oldID = oldID;
+            this.newID = newID;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        /** Return the blob ID on the old side, or null if the file was added. */
+        public String getOldID() {
+            return oldID;
+        }
+
+        /** Return the blob ID on the new side, or null if the file was removed or is a
+         *  working file missing from the tree, which is not hashed. */
+        public String getNewID() {
+            return newID;
+        }
+    }
+
+    /** The ID given to working files and directories, which are not hashed. */
+    private static final String PRESENT = "";
+
+    /** One directory being walked on both sides. */
+    private static class Frame {
+        private final String prefix;
+        private final Iterator<Map.Entry<String, String>> olds;
+        private final Iterator<Map.Entry<String, String>> news;
+        private Map.Entry<String, String> oldEntry;
+        private Map.Entry<String, String> newEntry;
+
+        Frame(String prefix, SortedMap<String, String> olds, SortedMap<String, String> news) {
+            this.prefix = prefix;
+            this.olds = olds.entrySet().iterator();
+            this.news = news.entrySet().iterator();
+            this.oldEntry = this.olds.hasNext() ? this.olds.next() : null;
+            this.newEntry = this.news.hasNext() ? this.news.next() : null;
+        }
+    }
+
+    /** True if the new side is the working directory. */
+    private final boolean working;
+    /** The snapshot of the working directory, if it is the new side. */
+    private final WorkingTree workingTree;
+    /** The directories being walked, innermost first. */
+    private final Deque<Frame> frames = new ArrayDeque<>();
+    /** The change next() will return, or null at the end. */
+    private Change next;
+
+    private TreeDiff(String oldTreeID, String newTreeID, boolean working) {
+        this.working = working;
+        this.workingTree = working ? WorkingTree.scan() : null;
+        if (working || !Objects.equals(oldTreeID, newTreeID)) {
+            push("", oldTreeID, newTreeID);
+        }
+        advance();
+    }
+
+    /** Return the differences from the tree OLDTREEID to the tree NEWTREEID. Either ID may
+     *  be null, standing for an empty tree. */
+    public static TreeDiff between(String oldTreeID, String newTreeID) {
+        return new TreeDiff(oldTreeID, newTreeID, false);
+    }
+
+    /** Return the differences from the tree TREEID to the working directory, which is
+     *  scanned once up front. Files that gitlet ignores are left out. */
+    public static TreeDiff againstWorkingTree(String treeID) {
+        return new TreeDiff(treeID, PRESENT, true);
+    }
+
+    @Override
+    public boolean hasNext() {
+        return next != null;
+    }
+
+    @Override
+    public Change next() {
+        if (next == null) {
+            throw new NoSuchElementException();
+        }
+        Change result = next;
+        advance();
+        return result;
+    }
+
+    /** Walk the directory with path PREFIX, whose old side is OLDID and new side is NEWID. */
+    private void push(String prefix, String oldID, String newID) {
+        SortedMap<String, String> olds = oldID == null ? Collections.emptySortedMap() : entries(oldID);
+        SortedMap<String, String> news;
+        if (newID == null) {
+            news = Collections.emptySortedMap();
+        } else if (working) {
+            news = workingEntries(prefix);
+        } else {
+            news = entries(newID);
+        }
+        frames.push(new Frame(prefix, olds, news));
+    }
+
+    /** Find the next change. */
+    private void advance() {
+        while (!frames.isEmpty()) {
+            Frame frame = frames.peek();
+            if (frame.oldEntry == null && frame.newEntry == null) {
+                frames.pop();
+                continue;
+            }
+            int cmp = frame.oldEntry == null ? 1
+                      : frame.newEntry == null ? -1
+                      : frame.oldEntry.getKey().compareTo(frame.newEntry.getKey());
+            String name;
+            String oldID = null;
+            String newID = null;
+            if (cmp <= 0) {
+                name = frame.oldEntry.getKey();
+                oldID = frame.oldEntry.getValue();
+                frame.oldEntry = frame.olds.hasNext() ? frame.olds.next() : null;
+            } else {
+                name = frame.newEntry.getKey();
+            }
+            if (cmp >= 0) {
+                newID = frame.newEntry.getValue();
+                frame.newEntry = frame.news.hasNext() ? frame.news.next() : null;
+            }
+
+            String path = frame.prefix + name;
+            if (Tree.isDirectory(name)) {
+                // Identical subtrees hold no changes
+                if (working || !Objects.equals(oldID, newID)) {
+                    push(path, oldID, newID);
+                }
+                continue;
+            }
+            if (oldID == null) {
+                next = new Change(path, Kind.ADDED, null, working ? null : newID);
+                return;
+            }
+            String currentID = newID;
+            if (working && newID != null) {
+                currentID = StatCache.blobUID(path, workingTree.list(frame.prefix).get(name));
+            }
+            if (currentID == null) {
+                next = new Change(path, Kind.REMOVED, oldID, null);
+                return;
+            }
+            if (!currentID.equals(oldID)) {
+                next = new Change(path, Kind.MODIFIED, oldID, currentID);
+                return;
+            }
+        }
+        next = null;
+    }
+
+    private static SortedMap<String, String> entries(String treeID) {
+        return ObjectStore.readObject(treeID, Tree.class).getEntries();
+    }
+
+    /** Return the entries of the working directory with path PREFIX, named as in a Tree. */
+    private SortedMap<String, String> workingEntries(String prefix) {
+        TreeMap<String, String> entries = new TreeMap<>();
+        for (String name : workingTree.list(prefix).keySet()) {
+            entries.put(name, PRESENT);
+        }
+        return entries;
+    }
+}
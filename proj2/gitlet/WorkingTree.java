@@ -0,0 +1,177 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import static gitlet.Utils.*;
+
+/** A snapshot of the working directory, taken by walking it recursively in parallel.
+ *  Every directory is listed by a task of its own in the common fork-join pool, and the
+ *  stat information of each regular file is read once during the walk and handed to the
+ *  stat cache, so unchanged files are neither stat'ed again nor read.
+ *
+ *  Paths are relative to the working directory and separated by "/". The .gitlet directory
+ *  and everything matched by the patterns of IGNORE_FILE are left out. Each line of that
+ *  file is a glob; blank lines and lines starting with "#" are skipped. A pattern ending in
+ *  "/" only matches directories, a pattern with a "/" anywhere else is matched against the
+ *  whole path, and any other pattern is matched against the name in every directory.
+ *  @author Ethan
+ */
+public class WorkingTree {
+    /** The file of patterns of paths that gitlet ignores. */
+    public static final File IGNORE_FILE = join(Repository.CWD, ".gitletignore");
+
+    /** The entries of each directory by its path followed by "/", or "" for the working
+     *  directory itself. Entries map a file name to its stat information, and the name of a
+     *  subdirectory followed by "/" to null, as names are written in a Tree. */
+    private final Map<String, TreeMap<String, long[]>> directories = new ConcurrentHashMap<>();
+
+    /** A single pattern of the ignore file. */
+    private static class Rule {
+        private final PathMatcher matcher;
+        /** True if the pattern is matched against the whole path rather than the name. */
+        private final boolean anchored;
+        private final boolean directoryOnly;
+
+        Rule(PathMatcher matcher, boolean anchored, boolean directoryOnly) {
+            this.matcher = matcher;
+            this.anchored = anchored;
+            this.directoryOnly = directoryOnly;
+        }
+    }
+
+    /** The rules of the ignore file as last loaded. */
+    private static List<Rule> rules;
+    /** The modification time and size of the ignore file the rules were loaded from. */
+    private static long ignoreStamp;
+
+    private WorkingTree() {
+    }
+
+    /** Return a snapshot of the directory PREFIX of the working directory and everything
+     *  below it, where PREFIX is "" or a path ending in "/". */
+    public static WorkingTree scan(String prefix) {
+        WorkingTree tree = new WorkingTree();
+        loadIgnore();
+        ForkJoinPool.commonPool().invoke(tree.new Walk(prefix));
+        return tree;
+    }
+
+    /** Return a snapshot of the whole working directory. */
+    public static WorkingTree scan() {
+        return scan("");
+    }
+
+    /** Return the entries of the directory with path PREFIX, named as in a Tree, or an empty
+     *  map if it was not scanned. */
+    public SortedMap<String, long[]> list(String prefix) {
+        TreeMap<String, long[]> entries = directories.get(prefix);
+        return entries == null ? Collections.emptySortedMap() : entries;
+    }
+
+    /** Return the paths of every file of the snapshot, sorted. */
+    public List<String> files() {
+        List<String> result = new ArrayList<>();
+        for (Map.Entry<String, TreeMap<String, long[]>> directory : directories.entrySet()) {
+            for (Map.Entry<String, long[]> entry : directory.getValue().entrySet()) {
+                if (!Tree.isDirectory(entry.getKey())) {
+                    result.add(directory.getKey() + entry.getKey());
+                }
+            }
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    /** Return true if the working file or directory PATH is ignored. */
+    public static boolean isIgnored(String path, boolean directory) {
+        loadIgnore();
+        return ignored(path, directory);
+    }
+
+    private static boolean ignored(String path, boolean directory) {
+        if (path.equals(Repository.GITLET_DIR.getName())) {
+            return true;
+        }
+        Path whole = Paths.get(path);
+        Path name = whole.getFileName();
+        for (Rule rule : rules) {
+            if ((directory || !rule.directoryOnly) && rule.matcher.matches(rule.anchored ? whole : name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Lists a single directory and forks a walk of each of its subdirectories. */
+    private class Walk extends RecursiveAction {
+        /** Fork/join tasks are serializable, though walks are never serialized. */
+        private static final long serialVersionUID = 1L;
+
+        private final String prefix;
+
+        Walk(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        protected void compute() {
+            TreeMap<String, long[]> entries = new TreeMap<>();
+            List<Walk> subdirectories = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(Utils.join(Repository.CWD, prefix).toPath())) {
+                for (Path child : stream) {
+                    String name = child.getFileName().toString();
+                    long[] stat = StatCache.stat(child.toFile());
+                    if (stat != null) {
+                        if (!ignored(prefix + name, false)) {
+                            entries.put(name, stat);
+                        }
+                    } else if (Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)
+                               && !ignored(prefix + name, true)) {
+                        entries.put(name + "/", null);
+                        subdirectories.add(new Walk(prefix + name + "/"));
+                    }
+                }
+            } catch (IOException | DirectoryIteratorException excp) {
+                // A directory that vanished or cannot be read has no entries
+            }
+            directories.put(prefix, entries);
+            invokeAll(subdirectories);
+        }
+    }
+
+    /** Load the rules of the ignore file, unless it is unchanged since they were last
+     *  loaded. */
+    private static synchronized void loadIgnore() {
+        long stamp = IGNORE_FILE.isFile() ? IGNORE_FILE.lastModified() * 31 + IGNORE_FILE.length() : 0;
+        if (rules != null && stamp == ignoreStamp) {
+            return;
+        }
+        List<Rule> loaded = new ArrayList<>();
+        if (IGNORE_FILE.isFile()) {
+            FileSystem fs = FileSystems.getDefault();
+            for (String line : readContentsAsString(IGNORE_FILE).split("\r?\n")) {
+                String pattern = line.trim();
+                if (pattern.isEmpty() || pattern.startsWith("#")) {
+                    continue;
+                }
+                boolean directoryOnly = pattern.endsWith("/");
+                if (directoryOnly) {
+                    pattern = pattern.substring(0, pattern.length() - 1);
+                }
+                boolean anchored = pattern.contains("/");
+                if (pattern.startsWith("/")) {
+                    pattern = pattern.substring(1);
+                }
+                loaded.add(new Rule(fs.getPathMatcher("glob:" + pattern), anchored, directoryOnly));
+            }
+        }
+        rules = loaded;
+        ignoreStamp = stamp;
+    }
+}